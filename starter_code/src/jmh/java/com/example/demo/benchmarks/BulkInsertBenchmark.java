@@ -0,0 +1,117 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * Bulk-creates {@code rows} users, each with a cart and one order, in chunks of
+ * {@value #CHUNK_SIZE} per transaction. {@code idGeneration=identity} loads
+ * META-INF/identity-ids-orm.xml, which maps the ids back to IDENTITY columns, so
+ * the two runs differ only in how ids are generated. Each run gets its own
+ * in-memory database because the two mappings need different schemas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"sequence", "identity"})
+    public String idGeneration;
+
+    @Param({"100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private EntityManagerFactory entityManagerFactory;
+    private int run;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "spring.datasource.url=jdbc:h2:mem:bulk-" + idGeneration + ";DB_CLOSE_DELAY=-1");
+        if ("identity".equals(idGeneration)) {
+            builder.properties("spring.jpa.mapping-resources=META-INF/identity-ids-orm.xml");
+        }
+        context = builder.run();
+        entityManagerFactory = context.getBean(EntityManagerFactory.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.execute("delete from user_order_items");
+        jdbcTemplate.execute("delete from user_order");
+        jdbcTemplate.execute("delete from user");
+        jdbcTemplate.execute("delete from cart");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int createUsersWithCartsAndOrders() {
+        String prefix = "bulk-" + (run++) + "-";
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            for (int start = 0; start < rows; start += CHUNK_SIZE) {
+                entityManager.getTransaction().begin();
+                Item item = entityManager.getReference(Item.class, 1L);
+                for (int i = start; i < Math.min(start + CHUNK_SIZE, rows); i++) {
+                    User user = new User();
+                    user.setUsername(prefix + i);
+                    user.setPassword("not-a-real-hash");
+                    Cart cart = new Cart();
+                    cart.setUser(user);
+                    user.setCart(cart);
+                    entityManager.persist(user);
+
+                    UserOrder order = new UserOrder();
+                    order.setUser(user);
+                    order.setItems(Collections.singletonList(item));
+                    order.setTotal(new BigDecimal("2.99"));
+                    entityManager.persist(order);
+                }
+                entityManager.getTransaction().commit();
+                entityManager.clear();
+            }
+        } finally {
+            entityManager.close();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * In-memory cart operations for carts holding 10 to 100k distinct items.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private Cart cart;
+    private Item existing;
+    private Item absent;
+
+    @Setup
+    public void setUp() {
+        cart = new Cart();
+        for (long id = 1; id <= entries; id++) {
+            cart.addItem(item(id), 1);
+        }
+        existing = item(entries / 2 + 1);
+        absent = item(entries + 1);
+    }
+
+    @Benchmark
+    public BigDecimal addThenRemoveExistingItem() {
+        cart.addItem(existing, 5);
+        cart.removeItem(existing, 5);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal addThenRemoveNewItem() {
+        cart.addItem(absent, 1);
+        cart.removeItem(absent, 1);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal removeAbsentItem() {
+        cart.removeItem(absent, 1);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public UserOrder createOrderFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+
+    static Item item(long id) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName("Item " + id);
+        item.setDescription("Benchmark item " + id);
+        item.setPrice(new BigDecimal("1.99"));
+        return item;
+    }
+}
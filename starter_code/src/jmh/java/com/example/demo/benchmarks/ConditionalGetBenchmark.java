@@ -0,0 +1,163 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.SecurityConstants;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * A client polling item and user reads that have not changed. With
+ * {@code conditional=true} it sends back the ETag of its first response in
+ * {@code If-None-Match} and gets 304s; with {@code false} it fetches the full body
+ * every time. Besides latency, the header and body bytes sent per response are
+ * printed after every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConditionalGetBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+    private static final String PASSWORD = "Password1";
+
+    @Param({"true", "false"})
+    public boolean conditional;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String token;
+    private String itemETag;
+    private String catalogETag;
+    private String userETag;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword(context.getBean(BCryptPasswordEncoder.class).encode(PASSWORD));
+        Cart cart = new Cart();
+        cart.setUser(user);
+        user.setCart(cart);
+        context.getBean(UserRepository.class).save(user);
+        MvcResult login = mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn();
+        token = mockMvc.perform(asyncDispatch(login)).andReturn().getResponse().getHeader(SecurityConstants.HEADER_STRING);
+        if (token == null) {
+            throw new IllegalStateException("Benchmark fixture is not authenticated");
+        }
+
+        itemETag = perform(get("/api/item/1"), null).getHeader(HttpHeaders.ETAG);
+        catalogETag = perform(get("/api/item"), null).getHeader(HttpHeaders.ETAG);
+        userETag = perform(get("/api/user/" + USERNAME), null).getHeader(HttpHeaders.ETAG);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int pollItem(ByteMeter bytes) throws Exception {
+        return bytes.count(perform(get("/api/item/1"), itemETag));
+    }
+
+    @Benchmark
+    public int pollCatalog(ByteMeter bytes) throws Exception {
+        return bytes.count(perform(get("/api/item"), catalogETag));
+    }
+
+    @Benchmark
+    public int pollUser(ByteMeter bytes) throws Exception {
+        return bytes.count(perform(get("/api/user/" + USERNAME), userETag));
+    }
+
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder request, String eTag) throws Exception {
+        request.header(SecurityConstants.HEADER_STRING, token);
+        if (conditional && eTag != null) {
+            request.header(HttpHeaders.IF_NONE_MATCH, eTag);
+        }
+        return mockMvc.perform(request).andReturn().getResponse();
+    }
+
+    /**
+     * Header and body bytes of the responses one client thread got over an iteration.
+     */
+    @State(Scope.Thread)
+    public static class ByteMeter {
+        private long bytes;
+        private long responses;
+        private int lastStatus;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            bytes = 0;
+            responses = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void report(BenchmarkParams params) {
+            if (responses > 0) {
+                System.out.printf("%n%s %s: %d bytes per response (status %d)%n", params.getBenchmark(),
+                        params.getParam("conditional"), bytes / responses, lastStatus);
+            }
+        }
+
+        private int count(MockHttpServletResponse response) {
+            for (String name : response.getHeaderNames()) {
+                for (String value : response.getHeaders(name)) {
+                    // "Name: value\r\n"
+                    bytes += name.length() + value.length() + 4;
+                }
+            }
+            bytes += response.getContentAsByteArray().length;
+            responses++;
+            lastStatus = response.getStatus();
+            return lastStatus;
+        }
+    }
+}
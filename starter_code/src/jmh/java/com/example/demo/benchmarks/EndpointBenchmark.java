@@ -0,0 +1,276 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.SecurityConstants;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full request path of every endpoint through the security filter chain, against
+ * the in-memory database. The {@code cacheType} parameter switches the Spring
+ * cache between Caffeine and no caching. The {@code loginStorm} group measures
+ * catalog reads while other threads hammer /login.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class EndpointBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+    private static final String HISTORY_USERNAME = "benchmark-history";
+    private static final String PASSWORD = "Password1";
+    private static final int CART_SYNC_LINES = 30;
+
+    @Param({"caffeine", "none"})
+    public String cacheType;
+
+    @Param({"10000"})
+    public int historyOrders;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String token;
+    private String loginBody;
+    private String cartBody;
+    private List<String> lineBodies;
+    private String batchAddBody;
+    private String batchRemoveBody;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "spring.cache.type=" + cacheType, "logging.level.root=WARN")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        BCryptPasswordEncoder encoder = context.getBean(BCryptPasswordEncoder.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        User user = newUser(USERNAME, encoder.encode(PASSWORD));
+        userRepository.save(user);
+        User historyUser = userRepository.save(newUser(HISTORY_USERNAME, encoder.encode(PASSWORD)));
+        seedOrderHistory(historyUser);
+        seedCartSyncRequests(context.getBean(ItemRepository.class));
+
+        loginBody = "{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}";
+        cartBody = "{\"username\":\"" + USERNAME + "\",\"itemId\":1,\"quantity\":1}";
+        MvcResult login = mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(loginBody))
+                .andReturn();
+        token = mockMvc.perform(asyncDispatch(login)).andReturn().getResponse().getHeader(SecurityConstants.HEADER_STRING);
+        if (token == null || getItems() != 200 || getItemsByName() != 200 || orderHistoryPage() != 200) {
+            throw new IllegalStateException("Benchmark fixture is not authenticated or not seeded");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getItems() throws Exception {
+        return perform(get("/api/item").header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int getItemById() throws Exception {
+        return perform(get("/api/item/1").header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int getItemsByName() throws Exception {
+        return perform(get("/api/item/name/Round Widget").header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int searchItems() throws Exception {
+        return perform(get("/api/item/search").param("q", "widg").header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int getUser() throws Exception {
+        return perform(get("/api/user/" + USERNAME).header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int addThenRemoveFromCart() throws Exception {
+        return perform(post("/api/cart/addToCart").header(SecurityConstants.HEADER_STRING, token)
+                .contentType(MediaType.APPLICATION_JSON).content(cartBody))
+                + perform(post("/api/cart/removeFromCart").header(SecurityConstants.HEADER_STRING, token)
+                .contentType(MediaType.APPLICATION_JSON).content(cartBody));
+    }
+
+    /**
+     * 64 clients updating the same cart at once; all of them queue on the cart row.
+     */
+    @Benchmark
+    @Threads(64)
+    public int contendedAddThenRemoveFromCart() throws Exception {
+        return addThenRemoveFromCart();
+    }
+
+    /**
+     * A checkout page syncing {@value #CART_SYNC_LINES} lines one request at a time.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int syncCartLineByLine() throws Exception {
+        int status = 0;
+        for (String body : lineBodies) {
+            status += perform(post("/api/cart/addToCart").header(SecurityConstants.HEADER_STRING, token)
+                    .contentType(MediaType.APPLICATION_JSON).content(body));
+        }
+        for (String body : lineBodies) {
+            status += perform(post("/api/cart/removeFromCart").header(SecurityConstants.HEADER_STRING, token)
+                    .contentType(MediaType.APPLICATION_JSON).content(body));
+        }
+        return status;
+    }
+
+    /**
+     * The same {@value #CART_SYNC_LINES} lines through /api/cart/batch.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int syncCartBatch() throws Exception {
+        return perform(post("/api/cart/batch").header(SecurityConstants.HEADER_STRING, token)
+                .contentType(MediaType.APPLICATION_JSON).content(batchAddBody))
+                + perform(post("/api/cart/batch").header(SecurityConstants.HEADER_STRING, token)
+                .contentType(MediaType.APPLICATION_JSON).content(batchRemoveBody));
+    }
+
+    @Benchmark
+    public int orderHistoryPage() throws Exception {
+        return perform(get("/api/order/history/" + HISTORY_USERNAME).param("page", "0").param("size", "20")
+                .header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int orderHistoryFull() throws Exception {
+        return perform(get("/api/order/history/" + HISTORY_USERNAME).header(SecurityConstants.HEADER_STRING, token));
+    }
+
+    @Benchmark
+    public int login() throws Exception {
+        MvcResult login = mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(loginBody))
+                .andReturn();
+        return perform(asyncDispatch(login));
+    }
+
+    @Benchmark
+    @Group("loginStorm")
+    @GroupThreads(4)
+    public int stormLogin() throws Exception {
+        return login();
+    }
+
+    @Benchmark
+    @Group("loginStorm")
+    @GroupThreads(4)
+    public int stormGetItems() throws Exception {
+        return getItems();
+    }
+
+    private int perform(RequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andReturn().getResponse().getStatus();
+    }
+
+    private void seedOrderHistory(User user) {
+        // Items must stay managed because UserOrder cascades to them
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+            List<Item> items = context.getBean(ItemRepository.class).findAll();
+            BigDecimal total = items.stream().map(Item::getPrice).reduce(BigDecimal.ZERO, BigDecimal::add);
+            List<UserOrder> orders = new ArrayList<>(historyOrders);
+            for (int i = 0; i < historyOrders; i++) {
+                UserOrder order = new UserOrder();
+                order.setUser(user);
+                order.setItems(new ArrayList<>(items));
+                order.setTotal(total);
+                orders.add(order);
+            }
+            context.getBean(OrderRepository.class).saveAll(orders);
+        });
+    }
+
+    private void seedCartSyncRequests(ItemRepository itemRepository) {
+        List<Item> items = new ArrayList<>(CART_SYNC_LINES);
+        for (int i = 0; i < CART_SYNC_LINES; i++) {
+            Item item = new Item();
+            item.setName("Cart sync item " + i);
+            item.setDescription("Benchmark item for cart sync");
+            item.setPrice(new BigDecimal("4.99"));
+            items.add(item);
+        }
+        lineBodies = new ArrayList<>(CART_SYNC_LINES);
+        List<String> batchAdds = new ArrayList<>(CART_SYNC_LINES);
+        List<String> batchRemoves = new ArrayList<>(CART_SYNC_LINES);
+        for (Item item : itemRepository.saveAll(items)) {
+            lineBodies.add("{\"username\":\"" + USERNAME + "\",\"itemId\":" + item.getId() + ",\"quantity\":2}");
+            batchAdds.add("{\"itemId\":" + item.getId() + ",\"quantity\":2}");
+            batchRemoves.add("{\"itemId\":" + item.getId() + ",\"quantity\":-2}");
+        }
+        batchAddBody = "{\"username\":\"" + USERNAME + "\",\"changes\":[" + String.join(",", batchAdds) + "]}";
+        batchRemoveBody = "{\"username\":\"" + USERNAME + "\",\"changes\":[" + String.join(",", batchRemoves) + "]}";
+    }
+
+    private static User newUser(String username, String password) {
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword(password);
+        Cart cart = new Cart();
+        cart.setUser(user);
+        user.setCart(cart);
+        return user;
+    }
+}
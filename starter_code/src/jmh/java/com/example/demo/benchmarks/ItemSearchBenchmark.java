@@ -0,0 +1,61 @@
+package com.example.demo.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.search.ItemSearchIndex;
+
+/**
+ * Search latency of the in-memory item index by catalog size. The 10M catalog
+ * needs a large heap: -p catalogSize=10000000 -jvmArgs -Xmx16g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ItemSearchBenchmark {
+
+    private static final String[] SHAPES = {"Round", "Square", "Oval", "Hexagonal", "Triangular"};
+    private static final String[] KINDS = {"Widget", "Gadget", "Sprocket", "Gizmo"};
+
+    @Param({"10000", "1000000"})
+    public int catalogSize;
+
+    private ItemSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        index = new ItemSearchIndex();
+        for (long id = 1; id <= catalogSize; id++) {
+            Item item = CartBenchmark.item(id);
+            item.setName(SHAPES[(int) (id % SHAPES.length)] + " " + KINDS[(int) (id % KINDS.length)] + " " + id);
+            item.setDescription("A " + KINDS[(int) (id % KINDS.length)].toLowerCase() + " in batch " + (id % 1000));
+            index.index(item);
+        }
+    }
+
+    @Benchmark
+    public List<Item> selectivePrefix() {
+        return index.search("hexagonal gadget 12345", 20);
+    }
+
+    @Benchmark
+    public List<Item> broadPrefix() {
+        return index.search("wid", 20);
+    }
+}
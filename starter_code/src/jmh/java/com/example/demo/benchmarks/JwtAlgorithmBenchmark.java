@@ -0,0 +1,119 @@
+package com.example.demo.benchmarks;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.auth0.jwt.JWT;
+import com.example.demo.security.JwtKeyStore;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Signing and verification throughput of the key store for each supported
+ * algorithm, with the key loaded from a generated JWKS document. Signing happens
+ * once per login; verification on every request that misses the token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    @Param({"HS512", "RS256", "ES256"})
+    public String algorithm;
+
+    private JwtKeyStore keyStore;
+    private String token;
+
+    @Setup
+    public void setUp() throws Exception {
+        String jwk;
+        switch (algorithm) {
+            case "HS512": {
+                byte[] secret = new byte[64];
+                new SecureRandom().nextBytes(secret);
+                jwk = "{\"kty\":\"oct\",\"alg\":\"HS512\",\"kid\":\"bench\",\"k\":\"" + encode(secret) + "\"}";
+                break;
+            }
+            case "RS256": {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+                generator.initialize(2048);
+                KeyPair pair = generator.generateKeyPair();
+                RSAPublicKey publicKey = (RSAPublicKey) pair.getPublic();
+                RSAPrivateCrtKey privateKey = (RSAPrivateCrtKey) pair.getPrivate();
+                jwk = "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"kid\":\"bench\",\"n\":\"" + encode(publicKey.getModulus())
+                        + "\",\"e\":\"" + encode(publicKey.getPublicExponent())
+                        + "\",\"d\":\"" + encode(privateKey.getPrivateExponent())
+                        + "\",\"p\":\"" + encode(privateKey.getPrimeP()) + "\",\"q\":\"" + encode(privateKey.getPrimeQ())
+                        + "\",\"dp\":\"" + encode(privateKey.getPrimeExponentP())
+                        + "\",\"dq\":\"" + encode(privateKey.getPrimeExponentQ())
+                        + "\",\"qi\":\"" + encode(privateKey.getCrtCoefficient()) + "\"}";
+                break;
+            }
+            case "ES256": {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                KeyPair pair = generator.generateKeyPair();
+                ECPublicKey publicKey = (ECPublicKey) pair.getPublic();
+                ECPrivateKey privateKey = (ECPrivateKey) pair.getPrivate();
+                jwk = "{\"kty\":\"EC\",\"alg\":\"ES256\",\"crv\":\"P-256\",\"kid\":\"bench\",\"x\":\""
+                        + encode(publicKey.getW().getAffineX()) + "\",\"y\":\"" + encode(publicKey.getW().getAffineY())
+                        + "\",\"d\":\"" + encode(privateKey.getS()) + "\"}";
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(algorithm);
+        }
+        keyStore = new JwtKeyStore(new ObjectMapper(), new VerifiedTokenCache(0), SecurityConstants.SECRET,
+                "{\"keys\":[" + jwk + "]}", "", 60_000, "bench");
+        token = sign();
+    }
+
+    @Benchmark
+    public String sign() {
+        return keyStore.sign(JWT.create()
+                .withSubject("benchmark-user")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME)));
+    }
+
+    @Benchmark
+    public String verify() {
+        return keyStore.verify(token).getSubject();
+    }
+
+    private static String encode(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        // Drop the sign byte; JWK integers are unsigned big-endian
+        return encode(bytes[0] == 0 && bytes.length > 1 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.benchmarks;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.example.demo.security.JWTAuthenticationVerficationFilter;
+import com.example.demo.security.JwtKeyStore;
+import com.example.demo.security.JwtTokenService;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+
+/**
+ * Token signing as done on login and verification as done on every authenticated request,
+ * including the verification filter with and without the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    @Param({"true", "false"})
+    public boolean tokenCacheEnabled;
+
+    private final Algorithm algorithm = HMAC512(SecurityConstants.SECRET.getBytes());
+    private final JWTVerifier verifier = JWT.require(algorithm).build();
+    private String token;
+    private JWTAuthenticationVerficationFilter filter;
+
+    @Setup
+    public void setUp() {
+        token = sign();
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(tokenCacheEnabled ? 10_000 : 0);
+        JwtKeyStore keyStore = new JwtKeyStore(new ObjectMapper(), tokenCache, SecurityConstants.SECRET, "", "",
+                60_000, JwtKeyStore.DEFAULT_KEY_ID);
+        filter = new JWTAuthenticationVerficationFilter(authentication -> authentication, tokenCache,
+                new JwtTokenService(keyStore, new TokenRevocationList(100_000, 60_000), 900_000,
+                        SecurityConstants.EXPIRATION_TIME));
+    }
+
+    @Benchmark
+    public String sign() {
+        return JWT.create()
+                .withSubject("benchmark-user")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(algorithm);
+    }
+
+    @Benchmark
+    public String verifyWithNewVerifier() {
+        return JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build().verify(token).getSubject();
+    }
+
+    @Benchmark
+    public String verifyWithSharedVerifier() {
+        return verifier.verify(token).getSubject();
+    }
+
+    @Benchmark
+    public Object verificationFilter() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+        request.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.demo.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.requests.LoginRequest;
+import com.example.demo.security.LoginRequestReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost of reading the login body: a fresh ObjectMapper binding the User entity
+ * per request, as login used to, against the shared, bounded LoginRequest reader
+ * login uses now. Only parsing is measured. Run with
+ * {@code -prof gc} to compare allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginParseBenchmark {
+
+    private static final byte[] BODY = "{\"username\":\"benchmark-user\",\"password\":\"Password1\"}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper sharedMapper = new ObjectMapper();
+    private LoginRequestReader loginReader;
+
+    @Setup
+    public void setUp() {
+        loginReader = new LoginRequestReader(sharedMapper);
+    }
+
+    @Benchmark
+    public String freshMapperUserEntity() throws IOException {
+        return new ObjectMapper().readValue(request().getInputStream(), User.class).getUsername();
+    }
+
+    @Benchmark
+    public String sharedMapperUserEntity() throws IOException {
+        return sharedMapper.readValue(request().getInputStream(), User.class).getUsername();
+    }
+
+    @Benchmark
+    public LoginRequest sharedLoginReader() {
+        return loginReader.read(request());
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setContentType("application/json");
+        request.setContent(BODY);
+        return request;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.services.WriteBehindOrderWriter;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Orders per second through /api/order/submit in the {@code sync} and
+ * {@code batched} ingestion modes. Every thread checks out its own cart, so the
+ * numbers reflect order inserts rather than cart lock contention. The write-behind
+ * queue is kept small and a full queue is retried, so batched throughput is what
+ * the writer sustains, not how fast the queue fills.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(8)
+public class OrderIngestionBenchmark {
+
+    private static final String PASSWORD = "Password1";
+
+    @Param({"sync", "batched"})
+    public String ingestionMode;
+
+    private final AtomicInteger users = new AtomicInteger();
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN", "orders.ingestion.mode=" + ingestionMode,
+                        "orders.write-behind.queue-capacity=1000")
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        int queued = context.getBean(WriteBehindOrderWriter.class).getQueueSize();
+        context.close();
+        if (queued > 0) {
+            System.out.println("Orders drained on shutdown: " + queued);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Customer {
+        private String username;
+        private String token;
+        private String cartBody;
+
+        @Setup(Level.Trial)
+        public void setUp(OrderIngestionBenchmark benchmark) throws Exception {
+            username = "ingestion-user-" + benchmark.users.incrementAndGet();
+            User user = new User();
+            user.setUsername(username);
+            user.setPassword(benchmark.context.getBean(BCryptPasswordEncoder.class).encode(PASSWORD));
+            Cart cart = new Cart();
+            cart.setUser(user);
+            user.setCart(cart);
+            benchmark.context.getBean(UserRepository.class).save(user);
+
+            MvcResult login = benchmark.mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"username\":\"" + username + "\",\"password\":\"" + PASSWORD + "\"}"))
+                    .andReturn();
+            token = benchmark.mockMvc.perform(asyncDispatch(login)).andReturn().getResponse()
+                    .getHeader(SecurityConstants.HEADER_STRING);
+            if (token == null) {
+                throw new IllegalStateException("Benchmark user could not log in");
+            }
+            cartBody = "{\"username\":\"" + username + "\",\"changes\":["
+                    + "{\"itemId\":1,\"quantity\":2},{\"itemId\":2,\"quantity\":1}]}";
+        }
+    }
+
+    /**
+     * Fills the cart with three units and submits it; one operation is one stored or accepted order.
+     */
+    @Benchmark
+    public int submitOrder(Customer customer) throws Exception {
+        int status = perform(post("/api/cart/batch").header(SecurityConstants.HEADER_STRING, customer.token)
+                .contentType(MediaType.APPLICATION_JSON).content(customer.cartBody));
+        int submitted;
+        while ((submitted = perform(post("/api/order/submit/" + customer.username)
+                .header(SecurityConstants.HEADER_STRING, customer.token))) == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            Thread.yield();
+        }
+        return status + submitted;
+    }
+
+    private int perform(RequestBuilder request) throws Exception {
+        return mockMvc.perform(request).andReturn().getResponse().getStatus();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.security.AdaptiveBCryptPasswordEncoder;
+
+/**
+ * BCrypt encode/matches cost per work factor, to choose security.bcrypt.strength.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PasswordEncoderBenchmark {
+
+    @Param({"4", "6", "8", "10", "12", "14"})
+    public int strength;
+
+    private AdaptiveBCryptPasswordEncoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        encoder = new AdaptiveBCryptPasswordEncoder(strength);
+        encoded = encoder.encode("Password1");
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("Password1");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("Password1", encoded);
+    }
+}
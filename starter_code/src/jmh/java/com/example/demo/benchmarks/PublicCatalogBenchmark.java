@@ -0,0 +1,146 @@
+package com.example.demo.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.security.SecurityConstants;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Load test of the catalog reads through the security filter chain, eight client
+ * threads at a time. With {@code publicCatalog=true} the reads take the public
+ * chain without a token; with {@code false} they take the full chain with one, as
+ * before. Besides latency, the CPU time each client thread spent per request is
+ * printed after every iteration. The long warmup is needed for the request path to
+ * reach steady state; on a machine with few cores pass {@code -t 1}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(8)
+@Fork(1)
+public class PublicCatalogBenchmark {
+
+    private static final String USERNAME = "benchmark-user";
+    private static final String PASSWORD = "Password1";
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    @Param({"true", "false"})
+    public boolean publicCatalog;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(SareetaApplication.class)
+                .properties("server.port=0", "logging.level.root=WARN",
+                        "security.public-get-paths=" + (publicCatalog ? "/api/item,/api/item/{id:[0-9]+},/api/item/name/*" : ""))
+                .run();
+        mockMvc = MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .apply(springSecurity())
+                .build();
+
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword(context.getBean(BCryptPasswordEncoder.class).encode(PASSWORD));
+        Cart cart = new Cart();
+        cart.setUser(user);
+        user.setCart(cart);
+        context.getBean(UserRepository.class).save(user);
+        MvcResult login = mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"username\":\"" + USERNAME + "\",\"password\":\"" + PASSWORD + "\"}"))
+                .andReturn();
+        token = mockMvc.perform(asyncDispatch(login)).andReturn().getResponse().getHeader(SecurityConstants.HEADER_STRING);
+        if (token == null) {
+            throw new IllegalStateException("Benchmark fixture is not authenticated");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getItems(CpuMeter cpu) throws Exception {
+        return cpu.count(perform("/api/item"));
+    }
+
+    @Benchmark
+    public int getItemById(CpuMeter cpu) throws Exception {
+        return cpu.count(perform("/api/item/1"));
+    }
+
+    private int perform(String path) throws Exception {
+        if (publicCatalog) {
+            return mockMvc.perform(get(path)).andReturn().getResponse().getStatus();
+        }
+        return mockMvc.perform(get(path).header(SecurityConstants.HEADER_STRING, token)).andReturn().getResponse().getStatus();
+    }
+
+    /**
+     * CPU time of one client thread over an iteration, divided by its requests.
+     */
+    @State(Scope.Thread)
+    public static class CpuMeter {
+        private long startCpuNanos;
+        private long requests;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            startCpuNanos = THREADS.getCurrentThreadCpuTime();
+            requests = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void report(BenchmarkParams params) {
+            long cpuNanos = THREADS.getCurrentThreadCpuTime() - startCpuNanos;
+            if (requests > 0 && Thread.currentThread().getName().endsWith("-1")) {
+                System.out.printf("%n%s %s: %.1f us CPU per request%n", params.getBenchmark(), params.getParam("publicCatalog"),
+                        cpuNanos / 1000.0 / requests);
+            }
+        }
+
+        private int count(int status) {
+            requests++;
+            return status;
+        }
+    }
+}
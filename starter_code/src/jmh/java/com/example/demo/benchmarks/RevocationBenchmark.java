@@ -0,0 +1,96 @@
+package com.example.demo.benchmarks;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.demo.security.JWTAuthenticationVerficationFilter;
+import com.example.demo.security.JwtKeyStore;
+import com.example.demo.security.JwtTokenService;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.VerifiedTokenCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cost of the revocation check made on every authenticated request, with the
+ * list holding {@code revoked} other token ids. {@code checkLiveToken} is the
+ * common case the Bloom filter answers alone; {@code checkRevokedToken} also
+ * confirms against the exact set. {@code verificationFilter} is a whole request
+ * through the filter on a token cache hit, revocation check included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RevocationBenchmark {
+
+    @Param({"0", "100000"})
+    public int revoked;
+
+    private TokenRevocationList revocationList;
+    private JWTAuthenticationVerficationFilter filter;
+    private String liveTokenId;
+    private String revokedTokenId;
+    private String accessToken;
+
+    @Setup
+    public void setUp() {
+        revocationList = new TokenRevocationList(100_000, 60_000);
+        long expiresAt = System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME;
+        for (int i = 0; i < revoked; i++) {
+            revocationList.revoke(UUID.randomUUID().toString(), expiresAt);
+        }
+        liveTokenId = UUID.randomUUID().toString();
+        revokedTokenId = UUID.randomUUID().toString();
+        revocationList.revoke(revokedTokenId, expiresAt);
+
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(10_000);
+        JwtKeyStore keyStore = new JwtKeyStore(new ObjectMapper(), tokenCache, SecurityConstants.SECRET, "", "",
+                60_000, JwtKeyStore.DEFAULT_KEY_ID);
+        JwtTokenService tokenService = new JwtTokenService(keyStore, revocationList, 900_000,
+                SecurityConstants.EXPIRATION_TIME);
+        filter = new JWTAuthenticationVerficationFilter(authentication -> authentication, tokenCache, tokenService);
+        accessToken = tokenService.issue("benchmark-user").getAccessToken();
+    }
+
+    @Benchmark
+    public boolean checkLiveToken() {
+        return revocationList.isRevoked(liveTokenId);
+    }
+
+    @Benchmark
+    public boolean checkRevokedToken() {
+        return revocationList.isRevoked(revokedTokenId);
+    }
+
+    @Benchmark
+    public Object verificationFilter() throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/item");
+        request.addHeader(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + accessToken);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.demo.controllers.CartResponse;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Jackson serialization of the entities the controllers return, and of the
+ * compact cart view next to the full cart entity. The payload sizes of both cart
+ * forms are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int distinctItems;
+
+    @Param({"1", "10"})
+    public int quantity;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private User user;
+    private Cart cart;
+    private UserOrder order;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setUsername("benchmark-user");
+        user.setPassword("$2a$10$abcdefghijklmnopqrstuuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ01");
+        cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        user.setCart(cart);
+        for (long id = 1; id <= distinctItems; id++) {
+            cart.addItem(CartBenchmark.item(id), quantity);
+        }
+        order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+        try {
+            System.out.println("Cart payload bytes: full=" + serializeCart().length
+                    + ", compact=" + serializeCompactCart().length);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeCart() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cart);
+    }
+
+    /**
+     * Includes building the view from the cart lines, as the controller does per response.
+     */
+    @Benchmark
+    public byte[] serializeCompactCart() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(CartResponse.from(cart, user.getUsername()));
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeOrder() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(order);
+    }
+}
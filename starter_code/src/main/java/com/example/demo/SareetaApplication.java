@@ -1,10 +1,13 @@
 package com.example.demo;
 
+import com.example.demo.security.AdaptiveBCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
 import org.springframework.boot.web.servlet.support.SpringBootServletInitializer;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -12,10 +15,13 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
 @SpringBootApplication(exclude = {SecurityAutoConfiguration.class})
+@EnableCaching
 public class SareetaApplication extends SpringBootServletInitializer{
 	@Bean
-	public BCryptPasswordEncoder bCryptPasswordEncoder(){
-		return new BCryptPasswordEncoder();
+	public BCryptPasswordEncoder bCryptPasswordEncoder(@Value("${security.bcrypt.strength:10}") int strength,
+			@Value("${security.bcrypt.calibrate:false}") boolean calibrate,
+			@Value("${security.bcrypt.target-millis:250}") long targetMillis){
+		return new AdaptiveBCryptPasswordEncoder(calibrate ? AdaptiveBCryptPasswordEncoder.calibrate(targetMillis) : strength);
 	}
 	public static void main(String[] args) {
 		SpringApplication.run(SareetaApplication.class, args);
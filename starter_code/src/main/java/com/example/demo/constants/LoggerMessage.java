@@ -4,6 +4,11 @@ public interface LoggerMessage {
 
     String LOGIN_SUCCESS = "SUCCESS: Logged in user with username - ";
     String LOGIN_ERROR_USERNAME = "Invalid username - ";
+    String LOGIN_ERROR_CREDENTIALS = "Invalid username or password";
+    String LOGIN_BODY_TOO_LARGE = "The login request body is too large";
+    String LOGIN_BODY_INVALID = "The login request body must be a JSON object with username and password";
+    String PASSWORD_REHASHED = "Password re-encoded with the configured BCrypt strength for user - ";
+    String PASSWORD_REHASH_CONCURRENT = "Password was already re-encoded by a concurrent login for user - ";
 
     String SIGNUP_SUCCESS = "SUCCESS: Successfully created user - ";
     String SIGNUP_ERROR_INVALID_USERNAME = "This username already exists";
@@ -13,10 +18,49 @@ public interface LoggerMessage {
     String USER_NOT_FOUND = "User not found";
 
     String ITEM_NOT_FOUND = "Item not found";
+    String SEARCH_QUERY_EMPTY = "A search query is required";
+    String ITEM_IMPORT_DISABLED = "Catalog imports over HTTP are disabled";
+    String ITEM_IMPORT_UNSUPPORTED_FORMAT = "Catalog imports must be text/csv or application/x-ndjson";
+    String ITEM_IMPORT_MISSING_COLUMNS = "The CSV header must name the name, price and description columns";
+    String ITEM_IMPORT_NOT_STORED = "the item could not be stored";
+    String ITEM_IMPORT_CHUNK_FAILED = "Storing a chunk of imported items failed, retrying them one by one, first line: ";
+    String ITEM_IMPORT_PROGRESS = "Item import progress: ";
+    String ITEM_IMPORT_FINISHED = "SUCCESS: Item import finished: ";
     String ORDER_SUCCESS = "SUCCESS: Order successfully submitted for user: ";
 
+    String ORDER_ACCEPTED = "SUCCESS: Order accepted for write-behind for user: ";
+    String ORDER_QUEUE_FULL = "Too many orders are waiting to be saved, please retry shortly";
+    String ORDER_BATCH_WRITE_FAILED = "Writing a batch of orders failed, retrying them one by one, batch size: ";
+    String ORDER_WRITE_RETRY = "Writing queued orders failed on a transient database error, retrying in ";
+    String ORDER_DEAD_LETTERED = "A queued order could not be written and was moved to failed_order, order id: ";
+    String ORDER_WRITE_FAILED = "A queued order could neither be written nor moved to failed_order, order id: ";
+    String ORDER_QUEUE_NOT_DRAINED = "Shutdown timed out before all queued orders were written, writing the rest directly, orders left: ";
+
+    String ORDER_SUMMARY_REBUILT = "Order summaries rebuilt for ";
+
     String CART_IS_EMPTY = "Cannot submit order because the users cart is empty";
+    String IDEMPOTENCY_KEY_INVALID = "The Idempotency-Key header must be between 1 and 255 characters";
+    String IDEMPOTENT_REQUEST_IN_PROGRESS = "A request with this Idempotency-Key is still in progress or failed, please retry";
     String ADD_TO_CART_SUCCESS = "SUCCESS: Successfully added to cart for user: ";
+    String CART_BATCH_SUCCESS = "SUCCESS: Applied cart batch for user: ";
+    String CART_BATCH_EMPTY = "At least one cart change is required";
+    String CART_BATCH_TOO_LARGE = "Too many cart changes, the maximum per request is ";
+    String CART_CHANGE_ZERO_QUANTITY = "Quantity change must not be zero";
+    String CART_QUANTITY_TOO_LARGE = "The quantity of an item in the cart must not exceed ";
+    String CART_UPDATE_CONFLICT = "The cart was changed concurrently, please retry";
+
+    String SEQUENCE_ALIGNED = "Restarted id sequence above the existing rows: ";
 
     String TOKEN_EXPIRED = "The token used in the request has expired";
+    String TOKEN_INVALID = "The token used in the request could not be verified: ";
+    String TOKEN_REVOKED = "The token used in the request has been revoked";
+    String TOKEN_WRONG_USE = "The token cannot be used for this request";
+    String REFRESH_TOKEN_MISSING = "The request must carry a refresh token in the Refresh-Token header";
+    String TOKEN_UNKNOWN_KEY = "The token is signed with an unknown key: ";
+    String JWT_ACTIVE_KEY_UNUSABLE = "The active JWT signing key is missing or has no private part: ";
+    String JWKS_INVALID = "The JWT key set is not a valid JWKS document";
+    String JWKS_RELOADED = "Reloaded JWT keys: ";
+    String JWKS_RELOAD_FAILED = "Keeping the current JWT keys, could not reload ";
+
+    String PASSWORD_HASHING_SATURATED = "Too many concurrent sign ups or logins, please retry shortly";
 }
@@ -0,0 +1,29 @@
+package com.example.demo.controllers;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * Result of a batch cart update: the cart after all valid changes were applied,
+ * as the entity or a {@link CartResponse}, plus one message per rejected change, prefixed with its index in the request.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class CartBatchResponse {
+
+    private final Object cart;
+    private final List<String> errors;
+
+    CartBatchResponse(Object cart, List<String> errors) {
+        this.cart = cart;
+        this.errors = errors;
+    }
+
+    public Object getCart() {
+        return cart;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+}
@@ -1,7 +1,12 @@
 package com.example.demo.controllers;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.IntStream;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import com.example.demo.constants.LoggerMessage;
 import org.slf4j.Logger;
@@ -9,37 +14,75 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartLineChange;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.services.CartService;
+import com.example.demo.services.CartUpdateConflictException;
+import com.example.demo.services.UserLookupService;
 
 @RestController
 @RequestMapping("/api/cart")
 public class CartController {
+
+	static final int MAX_BATCH_CHANGES = 500;
+	static final String COMPACT_VIEW = "compact";
 	
 	@Autowired
-	private UserRepository userRepository;
+	private UserLookupService userLookupService;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private CartService cartService;
 	
 	@Autowired
 	private ItemRepository itemRepository;
 
+	@Autowired
+	private CartRepository cartRepository;
+
 	private static Logger logger = LoggerFactory.getLogger(CartController.class);
 
+	/**
+	 * Compact view of the user's cart. The ETag follows the cart's version, so a
+	 * request whose If-None-Match still matches gets 304 before any line is loaded.
+	 */
+	@GetMapping("/{username}")
+	public ResponseEntity<Object> getCart(@PathVariable String username, WebRequest webRequest) {
+		User user = userLookupService.findByUsername(username);
+		if(user == null) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
+		}
+		String etag = etag(user.getCart());
+		if(webRequest.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+		}
+		Cart cart = cartRepository.findWithLinesById(user.getCart().getId());
+		return ResponseEntity.ok().eTag(etag(cart)).body(CartResponse.from(cart, username));
+	}
+
+	/**
+	 * Adds units of an item. Like the other cart updates, answers with the full cart
+	 * entity, or with the compact {@link CartResponse} and its ETag when {@code view=compact}.
+	 */
 	@PostMapping("/addToCart")
-	public ResponseEntity<Object> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
+	public ResponseEntity<Object> addTocart(@RequestBody ModifyCartRequest request,
+			@RequestParam(required = false) String view) {
+		User user = userLookupService.findByUsername(request.getUsername());
 		if(user == null) {
 			logger.error("Adding to cart error: "+LoggerMessage.USER_NOT_FOUND);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
@@ -49,17 +92,25 @@ public class CartController {
 			logger.error("Adding to cart error: "+LoggerMessage.ITEM_NOT_FOUND);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.ITEM_NOT_FOUND, null));
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		cartRepository.save(cart);
+		Cart cart;
+		try {
+			cart = cartService.applyChanges(user.getCart().getId(),
+					Collections.singletonList(new CartLineChange(item.get().getId(), Math.max(0, request.getQuantity()))),
+					Collections.singletonMap(item.get().getId(), item.get()));
+		} catch (CartUpdateConflictException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(e.getMessage(), null));
+		} catch (IllegalArgumentException e) {
+			logger.error("Adding to cart error: "+e.getMessage());
+			return ResponseEntity.badRequest().body(new ApiError(e.getMessage(), null));
+		}
 		logger.info(LoggerMessage.ADD_TO_CART_SUCCESS+user.getUsername());
-		return ResponseEntity.ok(cart);
+		return cartResponse(cart, user.getUsername(), view);
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
+	public ResponseEntity<Object> removeFromcart(@RequestBody ModifyCartRequest request,
+			@RequestParam(required = false) String view) {
+		User user = userLookupService.findByUsername(request.getUsername());
 		if(user == null) {
 			logger.error("Remove from cart error: "+LoggerMessage.USER_NOT_FOUND);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -68,11 +119,82 @@ public class CartController {
 		if(!item.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
+		try {
+			return cartResponse(cartService.applyChanges(user.getCart().getId(),
+					Collections.singletonList(new CartLineChange(item.get().getId(), -Math.max(0, request.getQuantity()))),
+					Collections.singletonMap(item.get().getId(), item.get())), user.getUsername(), view);
+		} catch (CartUpdateConflictException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).build();
+		}
+	}
+
+	/**
+	 * Applies many quantity changes to a user's cart at once. All items are
+	 * resolved with a single query and all changes are applied in one
+	 * transaction through {@link CartService}. Changes that reference an unknown item
+	 * or carry a zero or oversized quantity are skipped and reported in {@code errors}.
+	 * If the changes would push a line past {@link CartLine#MAX_QUANTITY}, none is applied.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<Object> modifyCartBatch(@RequestBody ModifyCartBatchRequest request,
+			@RequestParam(required = false) String view) {
+		List<CartLineChange> changes = request.getChanges();
+		if(changes == null || changes.isEmpty()) {
+			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.CART_BATCH_EMPTY, null));
+		}
+		if(changes.size() > MAX_BATCH_CHANGES) {
+			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.CART_BATCH_TOO_LARGE + MAX_BATCH_CHANGES, null));
+		}
+		User user = userLookupService.findByUsername(request.getUsername());
+		if(user == null) {
+			logger.error("Batch cart error: "+LoggerMessage.USER_NOT_FOUND);
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
+		}
+		List<Long> itemIds = changes.stream().map(CartLineChange::getItemId).distinct().collect(Collectors.toList());
+		Map<Long, Item> items = itemRepository.findAllById(itemIds).stream()
+				.collect(Collectors.toMap(Item::getId, Function.identity()));
+
+		List<String> errors = new ArrayList<>();
+		List<CartLineChange> valid = new ArrayList<>(changes.size());
+		for(int i = 0; i < changes.size(); i++) {
+			CartLineChange change = changes.get(i);
+			if(!items.containsKey(change.getItemId())) {
+				errors.add("changes[" + i + "]: " + LoggerMessage.ITEM_NOT_FOUND + " - " + change.getItemId());
+			} else if(change.getQuantity() == 0) {
+				errors.add("changes[" + i + "]: " + LoggerMessage.CART_CHANGE_ZERO_QUANTITY);
+			} else if(Math.abs((long) change.getQuantity()) > CartLine.MAX_QUANTITY) {
+				errors.add("changes[" + i + "]: " + LoggerMessage.CART_QUANTITY_TOO_LARGE + CartLine.MAX_QUANTITY);
+			} else {
+				valid.add(change);
+			}
+		}
 		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-		cartRepository.save(cart);
-		return ResponseEntity.ok(cart);
+		if(!valid.isEmpty()) {
+			try {
+				cart = cartService.applyChanges(cart.getId(), valid, items);
+			} catch (CartUpdateConflictException e) {
+				return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(e.getMessage(), errors));
+			} catch (IllegalArgumentException e) {
+				logger.error("Batch cart error: "+e.getMessage());
+				return ResponseEntity.badRequest().body(new ApiError(e.getMessage(), errors));
+			}
+		}
+		logger.info(LoggerMessage.CART_BATCH_SUCCESS+user.getUsername());
+		if(COMPACT_VIEW.equalsIgnoreCase(view)) {
+			return ResponseEntity.ok().eTag(etag(cart)).body(new CartBatchResponse(CartResponse.from(cart, user.getUsername()), errors));
+		}
+		return ResponseEntity.ok(new CartBatchResponse(cart, errors));
+	}
+
+	private static ResponseEntity<Object> cartResponse(Cart cart, String username, String view) {
+		if(!COMPACT_VIEW.equalsIgnoreCase(view)) {
+			return ResponseEntity.ok(cart);
+		}
+		return ResponseEntity.ok().eTag(etag(cart)).body(CartResponse.from(cart, username));
 	}
-		
+
+	private static String etag(Cart cart) {
+		return cart.getId() + "-" + cart.getVersion();
+	}
+
 }
@@ -0,0 +1,105 @@
+package com.example.demo.controllers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+
+/**
+ * Compact view of a cart: one line per distinct item with its quantity and line
+ * total, instead of the entity's one entry per unit and its user back-reference.
+ * Built from the cart lines only, which must already be loaded. Prices are those
+ * the lines and the cart total were computed with, so the view only changes when
+ * the cart's version does and its ETag stays valid across item price changes.
+ */
+public class CartResponse {
+
+    private final Long id;
+    private final String username;
+    private final BigDecimal total;
+    private final int itemCount;
+    private final List<Line> lines;
+
+    private CartResponse(Long id, String username, BigDecimal total, int itemCount, List<Line> lines) {
+        this.id = id;
+        this.username = username;
+        this.total = total;
+        this.itemCount = itemCount;
+        this.lines = lines;
+    }
+
+    public static CartResponse from(Cart cart, String username) {
+        List<Line> lines = new ArrayList<>(cart.getLines().size());
+        int itemCount = 0;
+        for (CartLine line : cart.getLines()) {
+            lines.add(new Line(line));
+            itemCount += line.getQuantity();
+        }
+        return new CartResponse(cart.getId(), username, cart.getTotal() == null ? BigDecimal.ZERO : cart.getTotal(),
+                itemCount, lines);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    public static class Line {
+
+        private final Long itemId;
+        private final String name;
+        private final BigDecimal price;
+        private final int quantity;
+        private final BigDecimal lineTotal;
+
+        private Line(CartLine line) {
+            Item item = line.getItem();
+            this.itemId = item.getId();
+            this.name = item.getName();
+            this.quantity = line.getQuantity();
+            this.lineTotal = line.getLineTotal();
+            //The unit price of the stored line total, which the live item price may have moved away from
+            this.price = quantity == 0 ? item.getPrice()
+                    : lineTotal.divide(BigDecimal.valueOf(quantity), lineTotal.scale(), RoundingMode.HALF_UP);
+        }
+
+        public Long getItemId() {
+            return itemId;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getLineTotal() {
+            return lineTotal;
+        }
+    }
+}
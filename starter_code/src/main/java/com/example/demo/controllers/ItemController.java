@@ -1,32 +1,157 @@
 package com.example.demo.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.EntityVersion;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
+import com.example.demo.services.ItemImportService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/item")
 public class ItemController {
 
+	public static final String NDJSON_VALUE = "application/x-ndjson";
+	public static final String CSV_VALUE = "text/csv";
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+	private static final int MAX_PAGE_SIZE = 1000;
+	private static final int MAX_SEARCH_RESULTS = 100;
+
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private ItemSearchIndex itemSearchIndex;
+
+	@Autowired
+	private ItemImportService itemImportService;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${items.import.http-enabled:false}")
+	private boolean httpImportEnabled;
+
+	private static Logger logger = LoggerFactory.getLogger(ItemController.class);
 	
+	/**
+	 * The whole catalog. The ETag is derived from an aggregate over the item
+	 * versions, so a matching If-None-Match gets 304 without the items being loaded.
+	 */
 	@GetMapping
-	public ResponseEntity<List<Item>> getItems() {
-		return ResponseEntity.ok(itemRepository.findAll());
+	public ResponseEntity<List<Item>> getItems(WebRequest webRequest) {
+		String etag = itemRepository.findCatalogVersion().getETag();
+		if(webRequest.checkNotModified(etag)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+		}
+		return ResponseEntity.ok().eTag(etag).body(itemRepository.findAll());
+	}
+
+	@GetMapping("/page")
+	public ResponseEntity<Page<Item>> getItemPage(@RequestParam(defaultValue = "0") int page,
+			@RequestParam(defaultValue = "50") int size) {
+		return ResponseEntity.ok(itemRepository.findAll(PageRequest.of(Math.max(page, 0), pageSize(size), Sort.by("id"))));
+	}
+
+	/**
+	 * Keyset pagination: returns the items whose id is greater than {@code after}.
+	 * When more items follow, the id to pass as the next cursor is sent in the X-Next-Cursor header.
+	 */
+	@GetMapping("/seek")
+	public ResponseEntity<List<Item>> getItemsAfter(@RequestParam(defaultValue = "0") long after,
+			@RequestParam(defaultValue = "50") int size) {
+		Slice<Item> slice = itemRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, pageSize(size)));
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (slice.hasNext()) {
+			List<Item> items = slice.getContent();
+			response.header(NEXT_CURSOR_HEADER, String.valueOf(items.get(items.size() - 1).getId()));
+		}
+		return response.body(slice.getContent());
+	}
+
+	/**
+	 * Streams the whole catalog from a database cursor as NDJSON (default) or a JSON array,
+	 * detaching each item once written so memory stays flat regardless of catalog size.
+	 */
+	@GetMapping("/stream")
+	public ResponseEntity<StreamingResponseBody> streamItems(@RequestParam(defaultValue = "ndjson") String format) {
+		boolean ndjson = !"json".equalsIgnoreCase(format);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		StreamingResponseBody body = out -> transaction.execute(status -> {
+			try {
+				writeItems(out, ndjson);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return null;
+		});
+		return ResponseEntity.ok()
+				.contentType(ndjson ? MediaType.parseMediaType(NDJSON_VALUE) : MediaType.APPLICATION_JSON)
+				.body(body);
 	}
 	
+	/**
+	 * One item, with an ETag from its version and Last-Modified from its timestamp.
+	 * Both are read without loading the item, so a matching If-None-Match or
+	 * If-Modified-Since gets 304 before the row or its JSON is built.
+	 */
 	@GetMapping("/{id}")
-	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
-		return ResponseEntity.of(itemRepository.findById(id));
+	public ResponseEntity<Item> getItemById(@PathVariable Long id, WebRequest webRequest) {
+		EntityVersion version = itemRepository.findVersionById(id);
+		if(version == null) {
+			return ResponseEntity.notFound().build();
+		}
+		String etag = version.getETag(id);
+		if(webRequest.checkNotModified(etag, version.getLastModifiedMillis())) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(version.getLastModifiedMillis()).build();
+		}
+		return itemRepository.findById(id)
+				.map(item -> ResponseEntity.ok().eTag(etag).lastModified(version.getLastModifiedMillis()).body(item))
+				.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	@GetMapping("/name/{name}")
@@ -36,5 +161,73 @@ public class ItemController {
 				: ResponseEntity.ok(items);
 			
 	}
+
+	/**
+	 * Case-insensitive prefix search over item names and descriptions, ranked with
+	 * exact and prefix name matches first.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<Object> searchItems(@RequestParam(name = "q", required = false) String query,
+			@RequestParam(defaultValue = "20") int limit) {
+		if (query == null || query.trim().isEmpty()) {
+			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.SEARCH_QUERY_EMPTY, null));
+		}
+		return ResponseEntity.ok(itemSearchIndex.search(query, Math.min(Math.max(limit, 1), MAX_SEARCH_RESULTS)));
+	}
+
+	/**
+	 * Bulk import of a CSV or NDJSON catalog read straight from the request body,
+	 * which is never buffered as a whole. Responds with the number of imported and
+	 * rejected rows, the throughput and the first rejection messages. Any signed-up
+	 * user may call it, so it answers 404 unless {@code items.import.http-enabled}
+	 * is set; the {@code --import-items} command line import is always available.
+	 */
+	@PostMapping(value = "/import", consumes = {CSV_VALUE, NDJSON_VALUE})
+	public ResponseEntity<Object> importItems(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+			InputStream body) throws IOException {
+		if (!httpImportEnabled) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND)
+					.body(new ApiError(LoggerMessage.ITEM_IMPORT_DISABLED, null));
+		}
+		ItemImportService.Format format = ItemImportService.formatOf(contentType);
+		if (format == null) {
+			return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+					.body(new ApiError(LoggerMessage.ITEM_IMPORT_UNSUPPORTED_FORMAT, null));
+		}
+		try {
+			return ResponseEntity.ok(itemImportService.importItems(body, format));
+		} catch (IllegalArgumentException e) {
+			logger.error("Importing items error: "+e.getMessage());
+			return ResponseEntity.badRequest().body(new ApiError(e.getMessage(), null));
+		}
+	}
+
+	private void writeItems(OutputStream out, boolean ndjson) throws IOException {
+		try (Stream<Item> stream = itemRepository.streamAll();
+			 JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			if (ndjson) {
+				generator.setRootValueSeparator(null);
+			} else {
+				generator.writeStartArray();
+			}
+			Iterator<Item> items = stream.iterator();
+			while (items.hasNext()) {
+				Item item = items.next();
+				generator.writeObject(item);
+				if (ndjson) {
+					generator.writeRaw('\n');
+				}
+				entityManager.detach(item);
+			}
+			if (!ndjson) {
+				generator.writeEndArray();
+			}
+		}
+	}
+
+	private static int pageSize(int size) {
+		return Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+	}
 	
 }
@@ -0,0 +1,95 @@
+package com.example.demo.controllers;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.requests.LoginRequest;
+import com.example.demo.security.JwtTokenService;
+import com.example.demo.security.LoginAuthenticator;
+import com.example.demo.security.LoginRequestReader;
+import com.example.demo.security.PasswordHashingSaturatedException;
+import com.example.demo.security.SecurityConstants;
+
+@RestController
+public class LoginController {
+
+	@Autowired
+	private LoginRequestReader loginRequestReader;
+
+	@Autowired
+	private LoginAuthenticator loginAuthenticator;
+
+	@Autowired
+	private JwtTokenService tokenService;
+
+	private static Logger logger = LoggerFactory.getLogger(LoginController.class);
+
+	/**
+	 * Reads the credentials on the servlet thread, then checks them asynchronously,
+	 * so the servlet thread is free while the password is hashed. On success the
+	 * tokens are returned in the {@value SecurityConstants#HEADER_STRING} and
+	 * {@value SecurityConstants#REFRESH_HEADER_STRING} headers. Answers 401 for bad
+	 * credentials and 503 when the hashing pool is saturated.
+	 */
+	@PostMapping(SecurityConstants.LOGIN_URL)
+	public CompletableFuture<ResponseEntity<Object>> login(HttpServletRequest request) {
+		LoginRequest credentials;
+		try {
+			credentials = loginRequestReader.read(request);
+		} catch (AuthenticationException e) {
+			logger.error(e.getMessage());
+			return CompletableFuture.completedFuture(unauthorized(e.getMessage()));
+		}
+
+		try {
+			return loginAuthenticator.authenticate(credentials.getUsername(), credentials.getPassword())
+					.thenApply(user -> {
+						JwtTokenService.TokenPair tokens = tokenService.issue(user.getUsername());
+						logger.info(LoggerMessage.LOGIN_SUCCESS + user.getUsername());
+						return ResponseEntity.ok()
+								.header(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + tokens.getAccessToken())
+								.header(SecurityConstants.REFRESH_HEADER_STRING, tokens.getRefreshToken())
+								.build();
+					})
+					.exceptionally(failure -> failed(credentials.getUsername(), failure));
+		} catch (PasswordHashingSaturatedException e) {
+			return CompletableFuture.completedFuture(saturated());
+		}
+	}
+
+	private ResponseEntity<Object> failed(String username, Throwable failure) {
+		Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+		if (cause instanceof PasswordHashingSaturatedException) {
+			return saturated();
+		}
+		if (cause instanceof AuthenticationException) {
+			logger.error(cause.getMessage() + " - " + username);
+			return unauthorized(cause.getMessage());
+		}
+		throw failure instanceof CompletionException ? (CompletionException) failure : new CompletionException(failure);
+	}
+
+	private static ResponseEntity<Object> unauthorized(String message) {
+		return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiError(message, null));
+	}
+
+	private static ResponseEntity<Object> saturated() {
+		logger.warn(LoggerMessage.PASSWORD_HASHING_SATURATED);
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, SecurityConstants.RETRY_AFTER_SECONDS)
+				.body(new ApiError(LoggerMessage.PASSWORD_HASHING_SATURATED, null));
+	}
+}
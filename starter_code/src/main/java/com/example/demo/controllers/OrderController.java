@@ -1,25 +1,56 @@
 package com.example.demo.controllers;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import com.example.demo.constants.LoggerMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.services.CartUpdateConflictException;
+import com.example.demo.services.IdempotencyKeyStore;
+import com.example.demo.services.IdempotentRequestInProgressException;
+import com.example.demo.services.OrderQueueFullException;
+import com.example.demo.services.OrderService;
+import com.example.demo.services.StoredResponse;
+import com.example.demo.services.UserLookupService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 @RestController
 @RequestMapping("/api/order")
@@ -27,37 +58,217 @@ public class OrderController {
 	
 	
 	@Autowired
-	private UserRepository userRepository;
+	private UserLookupService userLookupService;
 	
 	@Autowired
 	private OrderRepository orderRepository;
 
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private IdempotencyKeyStore idempotencyKeyStore;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+	static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+	private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+	private static final int MAX_PAGE_SIZE = 200;
+	private static final String QUEUE_FULL_RETRY_AFTER_SECONDS = "1";
+	private static final String CSV_HEADER = "order_id,order_total,item_id,item_name,item_price\n";
+
 	private static Logger logger = LoggerFactory.getLogger(OrderController.class);
 	
+	/**
+	 * Turns the user's cart into an order and empties the cart in the same transaction.
+	 * In batched ingestion mode the order is acknowledged with 202 and its id, and is
+	 * saved shortly afterwards by the write-behind writer. With an {@value #IDEMPOTENCY_KEY_HEADER} header the first response for that key is
+	 * stored, and retries with the same key get it back without submitting again.
+	 */
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<Object> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
+	public ResponseEntity<Object> submit(@PathVariable String username,
+			@RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+		if(idempotencyKey == null) {
+			return submitOrder(username);
+		}
+		if(idempotencyKey.trim().isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.IDEMPOTENCY_KEY_INVALID, null));
+		}
+		try {
+			return idempotencyKeyStore.execute(username + ":" + idempotencyKey, () -> store(submitOrder(username)))
+					.toResponseEntity(IDEMPOTENT_REPLAYED_HEADER);
+		} catch (IdempotentRequestInProgressException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(e.getMessage(), null));
+		}
+	}
+
+	private ResponseEntity<Object> submitOrder(String username) {
+		User user = userLookupService.findByUsername(username);
 		if(user == null) {
 			logger.error("Submitting order error: "+LoggerMessage.USER_NOT_FOUND);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
 		}
-		if (user.getCart().getItems().size() == 0){
+		UserOrder order;
+		try {
+			order = orderService.submit(user.getCart().getId());
+		} catch (CartUpdateConflictException e) {
+			return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiError(e.getMessage(), null));
+		} catch (OrderQueueFullException e) {
+			logger.warn("Submitting order error: "+e.getMessage());
+			return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, QUEUE_FULL_RETRY_AFTER_SECONDS)
+					.body(new ApiError(e.getMessage(), null));
+		}
+		if (order == null){
 			logger.error("Submitting order error: "+LoggerMessage.CART_IS_EMPTY);
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.CART_IS_EMPTY, null));
 		}
-
-		UserOrder order = UserOrder.createFromCart(user.getCart());
-		orderRepository.save(order);
+		if (orderService.getMode() == OrderService.IngestionMode.BATCHED) {
+			logger.info(LoggerMessage.ORDER_ACCEPTED+username);
+			return ResponseEntity.status(HttpStatus.ACCEPTED).body(order);
+		}
 		logger.info(LoggerMessage.ORDER_SUCCESS+username);
 		return ResponseEntity.ok(order);
 	}
+
+	private StoredResponse store(ResponseEntity<Object> response) {
+		try {
+			byte[] body = response.getBody() == null ? null : objectMapper.writeValueAsBytes(response.getBody());
+			return new StoredResponse(response.getStatusCodeValue(), body);
+		} catch (JsonProcessingException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
 	
 	@GetMapping("/history/{username}")
 	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
+		User user = userLookupService.findByUsername(username);
 		if(user == null) {
 			return ResponseEntity.notFound().build();
 		}
 		return ResponseEntity.ok(orderRepository.findByUser(user));
 	}
+
+	@GetMapping(value = "/history/{username}", params = "page")
+	public ResponseEntity<Page<UserOrder>> getOrderPageForUser(@PathVariable String username,
+			@RequestParam int page, @RequestParam(defaultValue = "20") int size) {
+		User user = userLookupService.findByUsername(username);
+		if(user == null) {
+			return ResponseEntity.notFound().build();
+		}
+		Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
+		return ResponseEntity.ok(orderRepository.findByUserOrderByIdDesc(user, pageable));
+	}
+
+	/**
+	 * Exports the full history, most recent first, as NDJSON with one order per line
+	 * (the default) or as CSV with one line per order item. Rows come from a database
+	 * cursor and every item is detached once written, so memory stays flat however
+	 * many orders the user has.
+	 */
+	@GetMapping("/history/{username}/export")
+	public ResponseEntity<StreamingResponseBody> exportOrdersForUser(@PathVariable String username,
+			@RequestParam(defaultValue = "ndjson") String format) {
+		User user = userLookupService.findByUsername(username);
+		if(user == null) {
+			return ResponseEntity.notFound().build();
+		}
+		boolean csv = "csv".equalsIgnoreCase(format);
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		StreamingResponseBody body = out -> transaction.execute(status -> {
+			try (Stream<Object[]> rows = orderRepository.streamHistoryRows(user.getId())) {
+				if (csv) {
+					writeCsv(rows.iterator(), out);
+				} else {
+					writeNdjson(user, rows.iterator(), out);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return null;
+		});
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(csv ? ItemController.CSV_VALUE : ItemController.NDJSON_VALUE))
+				.body(body);
+	}
+
+	private void writeNdjson(User user, Iterator<Object[]> rows, OutputStream out) throws IOException {
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			generator.setRootValueSeparator(null);
+			Long orderId = null;
+			Object total = null;
+			while (rows.hasNext()) {
+				Object[] row = rows.next();
+				if (!row[0].equals(orderId)) {
+					if (orderId != null) {
+						endOrder(generator, user, total);
+					}
+					orderId = (Long) row[0];
+					total = row[1];
+					generator.writeStartObject();
+					generator.writeNumberField("id", orderId);
+					generator.writeArrayFieldStart("items");
+				}
+				Item item = (Item) row[2];
+				if (item != null) {
+					generator.writeObject(item);
+					entityManager.detach(item);
+				}
+			}
+			if (orderId != null) {
+				endOrder(generator, user, total);
+			}
+		}
+	}
+
+	private static void endOrder(JsonGenerator generator, User user, Object total) throws IOException {
+		generator.writeEndArray();
+		generator.writeObjectField("user", user);
+		generator.writeObjectField("total", total);
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+	}
+
+	private void writeCsv(Iterator<Object[]> rows, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writer.write(CSV_HEADER);
+		while (rows.hasNext()) {
+			Object[] row = rows.next();
+			Item item = (Item) row[2];
+			writer.write(row[0].toString());
+			writer.write(',');
+			writer.write(row[1] == null ? "" : ((BigDecimal) row[1]).toPlainString());
+			writer.write(',');
+			if (item != null) {
+				writer.write(item.getId().toString());
+				writer.write(',');
+				writer.write(csvField(item.getName()));
+				writer.write(',');
+				writer.write(item.getPrice().toPlainString());
+				entityManager.detach(item);
+			} else {
+				writer.write(",,");
+			}
+			writer.write('\n');
+		}
+		// Flush without closing, the servlet container owns the stream
+		writer.flush();
+	}
+
+	private static String csvField(String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+		return '"' + value.replace("\"", "\"\"") + '"';
+	}
 }
@@ -0,0 +1,50 @@
+package com.example.demo.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.services.UserLookupService;
+import com.example.demo.summary.OrderSummaryStore;
+
+/**
+ * Order analytics served from the precomputed {@link OrderSummaryStore}, without
+ * loading any orders.
+ */
+@RestController
+@RequestMapping("/api/order/summary")
+public class OrderSummaryController {
+
+	@Autowired
+	private OrderSummaryStore orderSummaryStore;
+
+	@Autowired
+	private UserLookupService userLookupService;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@GetMapping("/user/{username}")
+	public ResponseEntity<Object> getUserSummary(@PathVariable String username) {
+		User user = userLookupService.findByUsername(username);
+		if(user == null) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
+		}
+		return ResponseEntity.ok(orderSummaryStore.getUserSummary(user.getId()));
+	}
+
+	@GetMapping("/item/{id}")
+	public ResponseEntity<Object> getItemSales(@PathVariable Long id) {
+		if(!itemRepository.findById(id).isPresent()) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.ITEM_NOT_FOUND, null));
+		}
+		return ResponseEntity.ok(orderSummaryStore.getItemSales(id));
+	}
+}
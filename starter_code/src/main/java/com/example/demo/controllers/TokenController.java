@@ -0,0 +1,82 @@
+package com.example.demo.controllers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.security.JwtTokenService;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.security.VerifiedTokenCache;
+import com.example.demo.services.UserLookupService;
+
+/**
+ * Refreshes and revokes the tokens handed out by login.
+ */
+@RestController
+@RequestMapping("/api/user/token")
+public class TokenController {
+
+	@Autowired
+	private JwtTokenService tokenService;
+
+	@Autowired
+	private UserLookupService userLookupService;
+
+	private static Logger logger = LoggerFactory.getLogger(TokenController.class);
+
+	/**
+	 * Trades the refresh token in the {@value SecurityConstants#REFRESH_HEADER_STRING}
+	 * header for a new access and refresh token, returned in the same headers as on
+	 * login. Each refresh token can be redeemed once.
+	 */
+	@PostMapping("/refresh")
+	public ResponseEntity<Object> refresh(
+			@RequestHeader(name = SecurityConstants.REFRESH_HEADER_STRING, required = false) String refreshToken) {
+		if (refreshToken == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiError(LoggerMessage.REFRESH_TOKEN_MISSING, null));
+		}
+		JwtTokenService.TokenPair tokens;
+		try {
+			tokens = tokenService.refresh(refreshToken);
+		} catch (JWTVerificationException e) {
+			logger.error(LoggerMessage.TOKEN_INVALID + e.getMessage());
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiError(e.getMessage(), null));
+		}
+		if (userLookupService.findByUsername(tokens.getUsername()) == null) {
+			return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
+		}
+		return ResponseEntity.ok()
+				.header(SecurityConstants.HEADER_STRING, SecurityConstants.TOKEN_PREFIX + tokens.getAccessToken())
+				.header(SecurityConstants.REFRESH_HEADER_STRING, tokens.getRefreshToken())
+				.build();
+	}
+
+	/**
+	 * Logs out: revokes the access token the request was made with and, when sent,
+	 * the caller's refresh token.
+	 */
+	@PostMapping("/revoke")
+	public ResponseEntity<Object> revoke(Authentication authentication,
+			@RequestHeader(name = SecurityConstants.REFRESH_HEADER_STRING, required = false) String refreshToken) {
+		if (refreshToken != null) {
+			try {
+				tokenService.revokeRefreshToken(refreshToken, authentication.getName());
+			} catch (JWTVerificationException e) {
+				logger.error(LoggerMessage.TOKEN_INVALID + e.getMessage());
+				return ResponseEntity.badRequest().body(new ApiError(e.getMessage(), null));
+			}
+		}
+		VerifiedTokenCache.VerifiedToken accessToken = (VerifiedTokenCache.VerifiedToken) authentication.getDetails();
+		tokenService.revoke(accessToken.getId(), accessToken.getExpiresAt());
+		return ResponseEntity.noContent().build();
+	}
+}
@@ -1,18 +1,27 @@
 package com.example.demo.controllers;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.example.demo.constants.LoggerMessage;
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.EntityVersion;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.security.PasswordHashingSaturatedException;
+import com.example.demo.security.SecurityConstants;
+import com.example.demo.services.UserLookupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping("/api/user")
@@ -22,53 +31,102 @@ public class UserController {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private UserLookupService userLookupService;
 
 	@Autowired
 	private BCryptPasswordEncoder bCryptPasswordEncoder;
 
+	@Autowired
+	private PasswordHashingExecutor passwordHashingExecutor;
+
+	@Autowired
+	private TaskExecutor taskExecutor;
+
 	private static Logger logger = LoggerFactory.getLogger(UserController.class);
 
+	/**
+	 * Like the item reads, answers a matching If-None-Match or If-Modified-Since with
+	 * 304 from the user's version alone, before the user is loaded.
+	 */
 	@GetMapping("/id/{id}")
-	public ResponseEntity<User> findById(@PathVariable Long id) {
-		return ResponseEntity.of(userRepository.findById(id));
+	public ResponseEntity<User> findById(@PathVariable Long id, WebRequest webRequest) {
+		EntityVersion version = userRepository.findVersionById(id);
+		if(version == null) {
+			return ResponseEntity.notFound().build();
+		}
+		String etag = version.getETag(id);
+		if(webRequest.checkNotModified(etag, version.getLastModifiedMillis())) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(version.getLastModifiedMillis()).build();
+		}
+		return userRepository.findById(id)
+				.map(user -> ResponseEntity.ok().eTag(etag).lastModified(version.getLastModifiedMillis()).body(user))
+				.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	@GetMapping("/{username}")
-	public ResponseEntity<Object> findByUserName(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		return user == null ? ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null)) : ResponseEntity.ok(user);
+	public ResponseEntity<Object> findByUserName(@PathVariable String username, WebRequest webRequest) {
+		Long id = userRepository.findIdByUsername(username);
+		EntityVersion version = id == null ? null : userRepository.findVersionById(id);
+		if(version != null) {
+			String etag = version.getETag(id);
+			if(webRequest.checkNotModified(etag, version.getLastModifiedMillis())) {
+				return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).lastModified(version.getLastModifiedMillis()).build();
+			}
+		}
+		User user = userLookupService.findByUsername(username);
+		if(user == null) {
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ApiError(LoggerMessage.USER_NOT_FOUND, null));
+		}
+		//Versioned by the loaded user, since the cached id may have been stale
+		EntityVersion loaded = new EntityVersion(user.getVersion(), user.getLastModified());
+		return ResponseEntity.ok().eTag(loaded.getETag(user.getId())).lastModified(loaded.getLastModifiedMillis()).body(user);
 	}
 	
+	/**
+	 * Validates the request on the servlet thread, then hashes the password on the
+	 * bounded hashing pool. Answers 503 when that pool is saturated. The user is
+	 * saved on the application task executor, so database latency does not hold
+	 * a hashing thread.
+	 */
 	@PostMapping("/create")
-	public ResponseEntity<Object> createUser(@RequestBody CreateUserRequest createUserRequest) {
+	public CompletableFuture<ResponseEntity<Object>> createUser(@RequestBody CreateUserRequest createUserRequest) {
 		User user = new User();
 		user.setUsername(createUserRequest.getUsername());
 
-		if (userRepository.findByUsername(user.getUsername()) != null) {
+		if (userRepository.findIdByUsername(user.getUsername()) != null) {
 			logger.error(LoggerMessage.SIGNUP_ERROR_INVALID_USERNAME);
-			return ResponseEntity.ok(new ApiError(LoggerMessage.SIGNUP_ERROR_INVALID_USERNAME, null));
+			return CompletableFuture.completedFuture(ResponseEntity.ok(new ApiError(LoggerMessage.SIGNUP_ERROR_INVALID_USERNAME, null)));
 		}
 
 		if(createUserRequest.getPassword().length()< 7 ){
 			logger.error(LoggerMessage.SIGNUP_ERROR_PASSWORD_LENGTH);
-			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.SIGNUP_ERROR_PASSWORD_LENGTH, null));
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiError(LoggerMessage.SIGNUP_ERROR_PASSWORD_LENGTH, null)));
 		}
 
 		if(!createUserRequest.getPassword().equals(createUserRequest.getConfirmPassword())){
 			logger.error(LoggerMessage.SIGNUP_ERROR_PASSWORD_MATCH);
-			return ResponseEntity.badRequest().body(new ApiError(LoggerMessage.SIGNUP_ERROR_PASSWORD_MATCH, null));
+			return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(new ApiError(LoggerMessage.SIGNUP_ERROR_PASSWORD_MATCH, null)));
 		}
 
-		Cart cart = new Cart();
-		cartRepository.save(cart);
-		user.setCart(cart);
+		try {
+			return passwordHashingExecutor.submit(() -> bCryptPasswordEncoder.encode(createUserRequest.getPassword()))
+					.thenApplyAsync(hash -> {
+						//The cart is persisted through the cascade on User.cart, in the same transaction as the user
+						user.setCart(new Cart());
 
-		user.setPassword(bCryptPasswordEncoder.encode(createUserRequest.getPassword()));
+						user.setPassword(hash);
 
-		userRepository.save(user);
-		logger.info(LoggerMessage.SIGNUP_SUCCESS + user.getUsername());
-		return ResponseEntity.ok(user);
+						userRepository.save(user);
+						userLookupService.evict(user.getUsername());
+						logger.info(LoggerMessage.SIGNUP_SUCCESS + user.getUsername());
+						return ResponseEntity.ok(user);
+					}, taskExecutor);
+		} catch (PasswordHashingSaturatedException e) {
+			logger.warn(LoggerMessage.PASSWORD_HASHING_SATURATED);
+			return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+					.header(HttpHeaders.RETRY_AFTER, SecurityConstants.RETRY_AFTER_SECONDS)
+					.body(new ApiError(LoggerMessage.PASSWORD_HASHING_SATURATED, null)));
+		}
 	}
 	
 }
@@ -0,0 +1,20 @@
+package com.example.demo.model.persistence;
+
+import java.io.Serializable;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+/**
+ * Sequence generator that keeps an identifier the entity already carries. This
+ * lets an id be drawn from the sequence ahead of time, handed back to a caller,
+ * and used when the entity is saved later by another session.
+ */
+public class AssignableSequenceGenerator extends SequenceStyleGenerator {
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) {
+		Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+		return id != null ? id : super.generate(session, object);
+	}
+}
@@ -2,20 +2,28 @@ package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
+import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import javax.persistence.ManyToMany;
+import javax.persistence.MapKey;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.OrderBy;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.example.demo.constants.LoggerMessage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
@@ -23,15 +31,29 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
+
+	/**
+	 * Optimistic lock: concurrent updates of the same cart cannot silently
+	 * overwrite each other. See {@link com.example.demo.services.CartService}.
+	 */
+	@Version
+	@JsonIgnore
+	private Long version;
 	
-	@ManyToMany
-	@JsonProperty
-	@Column
-    private List<Item> items;
+	/**
+	 * Lines keyed by their item, so adding or removing units is a hash lookup
+	 * rather than a scan over the cart.
+	 */
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
+	@MapKey(name = "item")
+	@OrderBy("id")
+	@JsonIgnore
+    private Map<Item, CartLine> lines = new LinkedHashMap<>();
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
@@ -65,33 +87,88 @@ public class Cart {
 		this.id = id;
 	}
 
+	public Long getVersion() {
+		return version;
+	}
+
+	public Collection<CartLine> getLines() {
+		return lines.values();
+	}
+
+	/**
+	 * Expands the cart lines into one entry per unit, matching the original JSON shape.
+	 */
+	@JsonProperty("items")
 	public List<Item> getItems() {
+		List<Item> items = new ArrayList<>();
+		for (CartLine line : lines.values()) {
+			items.addAll(Collections.nCopies(line.getQuantity(), line.getItem()));
+		}
 		return items;
 	}
 
 	public void setItems(List<Item> items) {
-		this.items = items;
+		lines.clear();
+		total = BigDecimal.ZERO;
+		if (items != null) {
+			items.forEach(this::addItem);
+		}
 	}
-	
+
+	@JsonIgnore
+	public boolean isEmpty() {
+		return lines.isEmpty();
+	}
+
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	/**
+	 * @throws IllegalArgumentException if the line would hold more than {@link CartLine#MAX_QUANTITY} units
+	 */
+	public void addItem(Item item, int quantity) {
+		if (quantity <= 0) {
+			return;
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartLine existing = lines.get(item);
+		// Summed as long so a huge request cannot wrap around to a small quantity
+		long requested = (existing == null ? 0L : existing.getQuantity()) + (long) quantity;
+		if (requested > CartLine.MAX_QUANTITY) {
+			throw new IllegalArgumentException(LoggerMessage.CART_QUANTITY_TOO_LARGE + CartLine.MAX_QUANTITY);
 		}
-		total = total.add(item.getPrice());
+		CartLine line = lines.computeIfAbsent(item, key -> new CartLine(this, key));
+		adjustTotal(line.changeQuantity((int) requested));
 	}
-	
+
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		CartLine line = lines.get(item);
+		if (line == null || quantity <= 0) {
+			return;
+		}
+		int remaining = Math.max(0, line.getQuantity() - quantity);
+		adjustTotal(line.changeQuantity(remaining));
+		if (remaining == 0) {
+			lines.remove(item);
 		}
-		items.remove(item);
+	}
+
+	/**
+	 * Empties the cart once its contents have been turned into an order.
+	 */
+	public void clear() {
+		lines.clear();
+		total = BigDecimal.ZERO;
+	}
+
+	private void adjustTotal(BigDecimal delta) {
 		if(total == null) {
 			total = new BigDecimal(0);
 		}
-		total = total.subtract(item.getPrice());
+		total = total.add(delta);
 	}
 }
@@ -0,0 +1,109 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+
+import com.example.demo.constants.LoggerMessage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@Entity
+@Table(name = "cart_line")
+public class CartLine {
+
+	/**
+	 * Most units of one item a cart may hold. Orders and the expanded item list
+	 * hold one entry per unit, so the line must stay small.
+	 */
+	public static final int MAX_QUANTITY = 1000;
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_line_seq")
+	@SequenceGenerator(name = "cart_line_seq", sequenceName = "cart_line_seq", allocationSize = 50)
+	@JsonProperty
+	private Long id;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	@ManyToOne(optional = false)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private BigDecimal lineTotal;
+
+	public CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item) {
+		this.cart = cart;
+		this.item = item;
+		this.lineTotal = BigDecimal.ZERO;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public void setCart(Cart cart) {
+		this.cart = cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public BigDecimal getLineTotal() {
+		return lineTotal;
+	}
+
+	/**
+	 * Sets the quantity and recomputes the line total from the item price.
+	 * Returns the change in line total so the cart can adjust its own total.
+	 *
+	 * @throws IllegalArgumentException if the quantity is negative or above {@link #MAX_QUANTITY}
+	 */
+	public BigDecimal changeQuantity(int quantity) {
+		if (quantity < 0 || quantity > MAX_QUANTITY) {
+			throw new IllegalArgumentException(LoggerMessage.CART_QUANTITY_TOO_LARGE + MAX_QUANTITY);
+		}
+		BigDecimal previous = lineTotal == null ? BigDecimal.ZERO : lineTotal;
+		this.quantity = quantity;
+		this.lineTotal = item.getPrice().multiply(BigDecimal.valueOf(quantity));
+		return lineTotal.subtract(previous);
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.demo.model.persistence;
+
+/**
+ * Aggregate validator for the whole catalog. Updating an item raises the version
+ * sum, adding one raises the highest id and removing one lowers the count, so every
+ * change yields a different ETag. No Last-Modified is derived: the newest
+ * modification time does not move when an item is deleted.
+ */
+public class CatalogVersion {
+
+	private final long itemCount;
+	private final long maxId;
+	private final long versionSum;
+
+	public CatalogVersion(Long itemCount, Long maxId, Long versionSum) {
+		this.itemCount = itemCount == null ? 0 : itemCount;
+		this.maxId = maxId == null ? 0 : maxId;
+		this.versionSum = versionSum == null ? 0 : versionSum;
+	}
+
+	public String getETag() {
+		return "catalog-" + itemCount + "-" + maxId + "-" + versionSum;
+	}
+}
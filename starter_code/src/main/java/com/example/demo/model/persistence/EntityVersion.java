@@ -0,0 +1,29 @@
+package com.example.demo.model.persistence;
+
+import java.time.Instant;
+
+/**
+ * The version and last-modified time of one row, read without loading the entity,
+ * so a conditional GET can be answered before the row or its JSON is built.
+ */
+public class EntityVersion {
+
+	private final long version;
+	private final Instant lastModified;
+
+	public EntityVersion(Long version, Instant lastModified) {
+		this.version = version == null ? 0 : version;
+		this.lastModified = lastModified;
+	}
+
+	public String getETag(Object id) {
+		return id + "-" + version;
+	}
+
+	/**
+	 * Milliseconds since the epoch, or -1 when unknown, which disables If-Modified-Since.
+	 */
+	public long getLastModifiedMillis() {
+		return lastModified == null ? -1 : lastModified.toEpochMilli();
+	}
+}
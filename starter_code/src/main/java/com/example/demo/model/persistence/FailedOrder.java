@@ -0,0 +1,83 @@
+package com.example.demo.model.persistence;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.Table;
+
+/**
+ * Dead letter for an order that was acknowledged to the client but could not be
+ * written, such as one whose user was deleted in the meantime. The user and items
+ * are kept as plain ids, without foreign keys, so the row can always be stored and
+ * the order replayed or refunded later.
+ */
+@Entity
+@Table(name = "failed_order")
+public class FailedOrder {
+
+	static final int MAX_REASON_LENGTH = 1000;
+
+	// The id the order was acknowledged with
+	@Id
+	private Long id;
+
+	@Column(name = "user_id", nullable = false)
+	private Long userId;
+
+	@ElementCollection
+	@CollectionTable(name = "failed_order_item", joinColumns = @JoinColumn(name = "failed_order_id"))
+	@Column(name = "item_id", nullable = false)
+	private List<Long> itemIds;
+
+	@Column
+	private BigDecimal total;
+
+	@Column(length = MAX_REASON_LENGTH)
+	private String reason;
+
+	@Column(name = "failed_at", nullable = false)
+	private Instant failedAt;
+
+	protected FailedOrder() {
+	}
+
+	public FailedOrder(Long id, Long userId, List<Long> itemIds, BigDecimal total, String reason) {
+		this.id = id;
+		this.userId = userId;
+		this.itemIds = itemIds;
+		this.total = total;
+		this.reason = reason != null && reason.length() > MAX_REASON_LENGTH ? reason.substring(0, MAX_REASON_LENGTH) : reason;
+		this.failedAt = Instant.now();
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public List<Long> getItemIds() {
+		return itemIds;
+	}
+
+	public BigDecimal getTotal() {
+		return total;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public Instant getFailedAt() {
+		return failedAt;
+	}
+}
@@ -1,25 +1,35 @@
 package com.example.demo.model.persistence;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import com.example.demo.search.ItemSearchIndexListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "item")
+@Table(name = "item", indexes = @Index(name = "idx_item_name", columnList = "name"))
+@EntityListeners(ItemSearchIndexListener.class)
 public class Item {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50)
 	@JsonProperty
 	private Long id;
 	
@@ -34,6 +44,21 @@ public class Item {
 	@Column(nullable = false)
 	@JsonProperty
 	private String description;
+
+	// Both back the HTTP validators: the version the ETag, the timestamp Last-Modified
+	@Version
+	@JsonIgnore
+	private Long version;
+
+	@Column(name = "last_modified")
+	@JsonIgnore
+	private Instant lastModified;
+
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		lastModified = Instant.now();
+	}
 	
 	@Override
 	public int hashCode() {
@@ -91,6 +116,14 @@ public class Item {
 	public void setDescription(String description) {
 		this.description = description;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Instant getLastModified() {
+		return lastModified;
+	}
 	
 	
 	
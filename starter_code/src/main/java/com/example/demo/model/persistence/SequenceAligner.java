@@ -0,0 +1,79 @@
+package com.example.demo.model.persistence;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.enhanced.DatabaseStructure;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Migration path from IDENTITY columns to sequences. Rows inserted while the ids
+ * were IDENTITY columns, or with explicit ids by {@code data.sql}, are unknown to
+ * the sequences, so on startup every entity sequence that would hand out an id at
+ * or below its table's highest id is restarted just above it. Empty tables are
+ * left alone. This runs once per start, as soon as every singleton has been
+ * created: after {@code data.sql} has run, but before the embedded web server
+ * accepts connections and before any runner inserts rows. It assumes no other
+ * instance is inserting while it runs.
+ */
+@Component
+public class SequenceAligner implements SmartInitializingSingleton {
+
+	private static Logger logger = LoggerFactory.getLogger(SequenceAligner.class);
+
+	private final EntityManagerFactory entityManagerFactory;
+	private final JdbcTemplate jdbcTemplate;
+	private final boolean enabled;
+
+	public SequenceAligner(EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+			@Value("${persistence.sequences.align-on-startup:true}") boolean enabled) {
+		this.entityManagerFactory = entityManagerFactory;
+		this.jdbcTemplate = jdbcTemplate;
+		this.enabled = enabled;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated() {
+		if (!enabled) {
+			return;
+		}
+		SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		Dialect dialect = sessionFactory.getJdbcServices().getDialect();
+		for (EntityPersister persister : sessionFactory.getMetamodel().entityPersisters().values()) {
+			IdentifierGenerator generator = persister.getIdentifierGenerator();
+			if (!(generator instanceof SequenceStyleGenerator) || !(persister instanceof AbstractEntityPersister)) {
+				continue;
+			}
+			DatabaseStructure sequence = ((SequenceStyleGenerator) generator).getDatabaseStructure();
+			if (sequence.isPhysicalSequence()) {
+				align((AbstractEntityPersister) persister, sequence.getName(), dialect);
+			}
+		}
+	}
+
+	private void align(AbstractEntityPersister persister, String sequenceName, Dialect dialect) {
+		Long maxId = jdbcTemplate.queryForObject("select max(" + persister.getIdentifierColumnNames()[0] + ") from "
+				+ persister.getTableName(), Long.class);
+		if (maxId == null) {
+			return;
+		}
+		// Drawing a value costs at most one block of ids, and is the only portable way to read the sequence
+		Long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequenceName), Long.class);
+		if (next != null && next <= maxId) {
+			jdbcTemplate.execute("alter sequence " + sequenceName + " restart with " + (maxId + 1));
+			logger.info(LoggerMessage.SEQUENCE_ALIGNED + sequenceName + " -> " + (maxId + 1));
+		}
+	}
+}
@@ -5,13 +5,16 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import javax.persistence.*;
 
+import java.time.Instant;
+
 
 @Entity
 @Table(name = "user")
 public class User {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+	@SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
 	@JsonProperty
 	private long id;
 	
@@ -29,6 +32,20 @@ public class User {
 		this.password = password;
 	}
 
+	@Version
+	@JsonIgnore
+	private Long version;
+
+	@Column(name = "last_modified")
+	@JsonIgnore
+	private Instant lastModified;
+
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		lastModified = Instant.now();
+	}
+
 	@OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "cart_id", referencedColumnName = "id")
 	@JsonIgnore
@@ -57,6 +74,14 @@ public class User {
 	public void setUsername(String username) {
 		this.username = username;
 	}
+
+	public Long getVersion() {
+		return version;
+	}
+
+	public Instant getLastModified() {
+		return lastModified;
+	}
 	
 	
 	
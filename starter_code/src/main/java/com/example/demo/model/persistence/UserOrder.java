@@ -7,28 +7,41 @@ import java.util.stream.Collectors;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.ManyToOne;
 import javax.persistence.Table;
 
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+
+import com.example.demo.summary.OrderSummaryListener;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
-@Table(name = "user_order")
+@Table(name = "user_order", indexes = @Index(name = "idx_user_order_user_id_id", columnList = "user_id, id"))
+@EntityListeners(OrderSummaryListener.class)
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@GenericGenerator(name = "user_order_seq", strategy = "com.example.demo.model.persistence.AssignableSequenceGenerator", parameters = {
+			@Parameter(name = "sequence_name", value = "user_order_seq"),
+			@Parameter(name = "increment_size", value = "50"),
+			@Parameter(name = "optimizer", value = "pooled-lo") })
 	@JsonProperty
 	@Column
 	private Long id;
 	
 	@ManyToMany(cascade = CascadeType.ALL)
+	@BatchSize(size = 50)
 	@JsonProperty
 	@Column
     private List<Item> items;
@@ -1,10 +1,17 @@
 package com.example.demo.model.persistence.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	/**
+	 * The cart with its lines and their items, loaded in one query.
+	 */
+	@Query("select distinct c from Cart c left join fetch c.lines l left join fetch l.item where c.id = ?1")
+	Cart findWithLinesById(Long id);
 }
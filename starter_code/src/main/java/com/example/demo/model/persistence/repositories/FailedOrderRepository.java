@@ -0,0 +1,8 @@
+package com.example.demo.model.persistence.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.example.demo.model.persistence.FailedOrder;
+
+public interface FailedOrderRepository extends JpaRepository<FailedOrder, Long> {
+}
@@ -1,12 +1,98 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import com.example.demo.model.persistence.CatalogVersion;
+import com.example.demo.model.persistence.EntityVersion;
 import com.example.demo.model.persistence.Item;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+/**
+ * Catalog reads are served from the "items", "itemCatalog", "itemsByName" and
+ * "itemVersions" caches. Any write through this repository clears all four.
+ */
 public interface ItemRepository extends JpaRepository<Item, Long> {
+	String ITEM_CACHE = "items";
+	String CATALOG_CACHE = "itemCatalog";
+	String NAME_CACHE = "itemsByName";
+	String VERSION_CACHE = "itemVersions";
+
+	@Cacheable(cacheNames = NAME_CACHE, key = "#p0")
 	public List<Item> findByName(String name);
 
+	/**
+	 * Keyset page: the next {@code pageable.getPageSize()} items after the given id.
+	 */
+	Slice<Item> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	/**
+	 * Forward-only cursor over the whole catalog; must be consumed inside a transaction.
+	 */
+	@Query("select i from Item i order by i.id")
+	@QueryHints({
+			@QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HINT_READONLY, value = "true")
+	})
+	Stream<Item> streamAll();
+
+	/**
+	 * Version of one item, or null if there is no such item.
+	 */
+	@Cacheable(cacheNames = VERSION_CACHE, key = "#p0")
+	@Query("select new com.example.demo.model.persistence.EntityVersion(i.version, i.lastModified) from Item i where i.id = ?1")
+	EntityVersion findVersionById(Long id);
+
+	@Cacheable(cacheNames = VERSION_CACHE, key = "'catalog'")
+	@Query("select new com.example.demo.model.persistence.CatalogVersion(count(i), max(i.id), sum(i.version)) from Item i")
+	CatalogVersion findCatalogVersion();
+
+	@Override
+	@Cacheable(cacheNames = ITEM_CACHE, key = "#p0")
+	Optional<Item> findById(Long id);
+
+	@Override
+	@Cacheable(cacheNames = CATALOG_CACHE)
+	List<Item> findAll();
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	<S extends Item> S save(S entity);
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	<S extends Item> List<S> saveAll(Iterable<S> entities);
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	<S extends Item> S saveAndFlush(S entity);
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	void deleteById(Long id);
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	void delete(Item entity);
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	void deleteAll();
+
+	@Override
+	@CacheEvict(cacheNames = {ITEM_CACHE, CATALOG_CACHE, NAME_CACHE, VERSION_CACHE}, allEntries = true)
+	void deleteInBatch(Iterable<Item> entities);
 }
@@ -1,12 +1,59 @@
 package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
+	/**
+	 * Full history, most recent first, with items fetched in the same query.
+	 */
+	@Query("select distinct o from UserOrder o left join fetch o.items where o.user = ?1 order by o.id desc")
+	@QueryHints(@QueryHint(name = HINT_PASS_DISTINCT_THROUGH, value = "false"))
 	List<UserOrder> findByUser(User user);
+
+	/**
+	 * One page of history, most recent first; items are initialized in batches
+	 * rather than one query per order.
+	 */
+	Page<UserOrder> findByUserOrderByIdDesc(User user, Pageable pageable);
+
+	/**
+	 * Forward-only cursor over a user's history, most recent first, as one
+	 * {@code [orderId, total, item]} row per order item. Rows of one order are
+	 * adjacent and an order without items yields a single row with a null item.
+	 * Must be consumed inside a transaction.
+	 */
+	@Query("select o.id, o.total, i from UserOrder o left join o.items i where o.user.id = ?1 order by o.id desc")
+	@QueryHints({
+			@QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+			@QueryHint(name = HINT_READONLY, value = "true")
+	})
+	Stream<Object[]> streamHistoryRows(long userId);
+
+	/**
+	 * One {@code [userId, orderCount, totalSpend]} row per user with orders.
+	 */
+	@Query("select o.user.id, count(o), sum(o.total) from UserOrder o group by o.user.id")
+	List<Object[]> summarizeByUser();
+
+	/**
+	 * One {@code [itemId, unitsSold]} row per item that has been ordered.
+	 */
+	@Query("select i.id, count(i) from UserOrder o join o.items i group by i.id")
+	List<Object[]> countItemSales();
 }
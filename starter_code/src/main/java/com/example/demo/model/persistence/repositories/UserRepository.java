@@ -1,9 +1,22 @@
 package com.example.demo.model.persistence.repositories;
 
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import com.example.demo.model.persistence.EntityVersion;
 import com.example.demo.model.persistence.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 	User findByUsername(String username);
+
+	@Cacheable(cacheNames = "userIds", key = "#p0", unless = "#result == null")
+	@Query("select u.id from User u where u.username = ?1")
+	Long findIdByUsername(String username);
+
+	/**
+	 * Version of one user, or null if there is no such user.
+	 */
+	@Query("select new com.example.demo.model.persistence.EntityVersion(u.version, u.lastModified) from User u where u.id = ?1")
+	EntityVersion findVersionById(long id);
 }
@@ -0,0 +1,41 @@
+package com.example.demo.model.requests;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * One entry of a {@link ModifyCartBatchRequest}. A positive quantity adds units
+ * of the item to the cart, a negative one removes them.
+ */
+public class CartLineChange {
+
+	@JsonProperty
+	private long itemId;
+
+	@JsonProperty
+	private int quantity;
+
+	public CartLineChange() {
+	}
+
+	public CartLineChange(long itemId, int quantity) {
+		this.itemId = itemId;
+		this.quantity = quantity;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public void setItemId(long itemId) {
+		this.itemId = itemId;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+}
@@ -0,0 +1,31 @@
+package com.example.demo.model.requests;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class ModifyCartBatchRequest {
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private List<CartLineChange> changes;
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public List<CartLineChange> getChanges() {
+		return changes;
+	}
+
+	public void setChanges(List<CartLineChange> changes) {
+		this.changes = changes;
+	}
+
+}
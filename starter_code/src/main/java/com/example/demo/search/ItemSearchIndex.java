@@ -0,0 +1,223 @@
+package com.example.demo.search;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+
+/**
+ * In-memory inverted index over item names and descriptions. Every term maps to
+ * the ids of the items containing it, and terms are kept sorted so a prefix
+ * lookup is a range scan. The index is built from the database once the
+ * application is ready and kept in sync by {@link ItemSearchIndexListener}.
+ */
+@Component
+public class ItemSearchIndex {
+
+	private static final int EXACT_NAME_SCORE = 1000;
+	private static final int NAME_PREFIX_SCORE = 100;
+	private static final int NAME_TERM_SCORE = 10;
+	private static final int DESCRIPTION_TERM_SCORE = 1;
+
+	private static Logger logger = LoggerFactory.getLogger(ItemSearchIndex.class);
+
+	private final ConcurrentSkipListMap<String, Set<Long>> terms = new ConcurrentSkipListMap<>();
+	private final Map<Long, IndexedItem> items = new ConcurrentHashMap<>();
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		clear();
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setReadOnly(true);
+		transaction.execute(status -> {
+			try (Stream<Item> stream = itemRepository.streamAll()) {
+				stream.forEach(this::index);
+			}
+			return null;
+		});
+		logger.info("Item search index built with " + items.size() + " items and " + terms.size() + " terms");
+	}
+
+	public void clear() {
+		terms.clear();
+		items.clear();
+	}
+
+	public synchronized void index(Item item) {
+		if (item.getId() == null) {
+			return;
+		}
+		remove(item.getId());
+		IndexedItem indexed = new IndexedItem(item);
+		items.put(item.getId(), indexed);
+		indexed.nameTerms.forEach(term -> addPosting(term, item.getId()));
+		indexed.descriptionTerms.forEach(term -> addPosting(term, item.getId()));
+	}
+
+	public synchronized void remove(Long id) {
+		IndexedItem previous = items.remove(id);
+		if (previous == null) {
+			return;
+		}
+		previous.nameTerms.forEach(term -> removePosting(term, id));
+		previous.descriptionTerms.forEach(term -> removePosting(term, id));
+	}
+
+	/**
+	 * Returns up to {@code limit} items where every query term is a prefix of
+	 * some term in the item's name or description, best matches first.
+	 */
+	public List<Item> search(String query, int limit) {
+		String normalized = normalize(query);
+		List<String> queryTerms = tokenize(normalized);
+		if (queryTerms.isEmpty() || limit <= 0) {
+			return Collections.emptyList();
+		}
+
+		Set<Long> candidates = null;
+		for (String queryTerm : queryTerms) {
+			Set<Long> matches = new HashSet<>();
+			terms.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false)
+					.values().forEach(matches::addAll);
+			if (candidates == null) {
+				candidates = matches;
+			} else {
+				candidates.retainAll(matches);
+			}
+			if (candidates.isEmpty()) {
+				return Collections.emptyList();
+			}
+		}
+
+		Map<IndexedItem, Integer> scores = new HashMap<>();
+		for (Long id : candidates) {
+			IndexedItem item = items.get(id);
+			if (item != null) {
+				scores.put(item, item.score(normalized, queryTerms));
+			}
+		}
+
+		List<IndexedItem> ranked = new ArrayList<>(scores.keySet());
+		ranked.sort(Comparator.<IndexedItem>comparingInt(scores::get).reversed()
+				.thenComparing(item -> item.normalizedName)
+				.thenComparing(item -> item.id));
+		List<Item> results = new ArrayList<>(Math.min(limit, ranked.size()));
+		for (int i = 0; i < ranked.size() && i < limit; i++) {
+			results.add(ranked.get(i).toItem());
+		}
+		return results;
+	}
+
+	public int size() {
+		return items.size();
+	}
+
+	private void addPosting(String term, Long id) {
+		terms.computeIfAbsent(term, key -> ConcurrentHashMap.newKeySet()).add(id);
+	}
+
+	private void removePosting(String term, Long id) {
+		terms.computeIfPresent(term, (key, ids) -> {
+			ids.remove(id);
+			return ids.isEmpty() ? null : ids;
+		});
+	}
+
+	static String normalize(String text) {
+		return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+	}
+
+	static List<String> tokenize(String normalized) {
+		List<String> tokens = new ArrayList<>();
+		for (String token : normalized.split("[^\\p{L}\\p{N}]+")) {
+			if (!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+
+	private static final class IndexedItem {
+		private final Long id;
+		private final String name;
+		private final String normalizedName;
+		private final String description;
+		private final BigDecimal price;
+		private final Set<String> nameTerms;
+		private final Set<String> descriptionTerms;
+
+		private IndexedItem(Item item) {
+			this.id = item.getId();
+			this.name = item.getName();
+			this.normalizedName = normalize(item.getName());
+			this.description = item.getDescription();
+			this.price = item.getPrice();
+			this.nameTerms = new LinkedHashSet<>(tokenize(normalizedName));
+			this.descriptionTerms = new LinkedHashSet<>(tokenize(normalize(item.getDescription())));
+		}
+
+		private int score(String query, List<String> queryTerms) {
+			int score = 0;
+			if (normalizedName.equals(query)) {
+				score += EXACT_NAME_SCORE;
+			} else if (normalizedName.startsWith(query)) {
+				score += NAME_PREFIX_SCORE;
+			}
+			for (String queryTerm : queryTerms) {
+				if (matchesPrefix(nameTerms, queryTerm)) {
+					score += NAME_TERM_SCORE;
+				}
+				if (matchesPrefix(descriptionTerms, queryTerm)) {
+					score += DESCRIPTION_TERM_SCORE;
+				}
+			}
+			return score;
+		}
+
+		private static boolean matchesPrefix(Set<String> terms, String prefix) {
+			for (String term : terms) {
+				if (term.startsWith(prefix)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private Item toItem() {
+			Item item = new Item();
+			item.setId(id);
+			item.setName(name);
+			item.setDescription(description);
+			item.setPrice(price);
+			return item;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.demo.search;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.model.persistence.Item;
+
+/**
+ * JPA entity listener that applies item changes to the {@link ItemSearchIndex}
+ * once the surrounding transaction commits, so rolled back writes never show up
+ * in search results. Hibernate builds the listener while the EntityManagerFactory
+ * is still being created, so the index is injected lazily.
+ */
+public class ItemSearchIndexListener {
+
+	@Autowired
+	@Lazy
+	private ItemSearchIndex itemSearchIndex;
+
+	@PostPersist
+	@PostUpdate
+	public void itemSaved(Item item) {
+		afterCommit(() -> itemSearchIndex.index(item));
+	}
+
+	@PostRemove
+	public void itemRemoved(Item item) {
+		Long id = item.getId();
+		afterCommit(() -> itemSearchIndex.remove(id));
+	}
+
+	private static void afterCommit(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			action.run();
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+	}
+}
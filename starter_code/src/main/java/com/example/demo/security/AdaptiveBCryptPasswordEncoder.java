@@ -0,0 +1,69 @@
+package com.example.demo.security;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * BCrypt encoder whose work factor comes from configuration. Any stored hash made
+ * with a different work factor, higher or lower, is reported as needing an upgrade,
+ * so it is re-encoded on the user's next successful login.
+ */
+public class AdaptiveBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    public static final int MIN_STRENGTH = 4;
+    public static final int MAX_CALIBRATED_STRENGTH = 16;
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+
+    private static Logger logger = LoggerFactory.getLogger(AdaptiveBCryptPasswordEncoder.class);
+
+    private final int strength;
+
+    public AdaptiveBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        if (!matcher.find()) {
+            return false;
+        }
+        return Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    /**
+     * Picks the highest work factor whose hash time on this machine stays within
+     * the target. Each step doubles the cost, so the search stops at the first
+     * strength that overshoots.
+     */
+    public static int calibrate(long targetMillis) {
+        int chosen = MIN_STRENGTH;
+        for (int candidate = MIN_STRENGTH; candidate <= MAX_CALIBRATED_STRENGTH; candidate++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(candidate);
+            encoder.encode(CALIBRATION_PASSWORD);
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            if (elapsedMillis > targetMillis) {
+                break;
+            }
+            chosen = candidate;
+        }
+        logger.info("BCrypt calibrated to strength " + chosen + " for a target of " + targetMillis + "ms");
+        return chosen;
+    }
+}
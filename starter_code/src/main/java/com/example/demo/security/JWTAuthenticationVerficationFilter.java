@@ -8,6 +8,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
 import com.example.demo.constants.LoggerMessage;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -16,14 +17,18 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.stereotype.Component;
 
-import com.auth0.jwt.JWT;
-
-import static com.auth0.jwt.algorithms.Algorithm.HMAC512;
+import com.auth0.jwt.interfaces.DecodedJWT;
 
 public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilter {
+
+	private final VerifiedTokenCache tokenCache;
+	private final JwtTokenService tokenService;
 	
-	public JWTAuthenticationVerficationFilter(AuthenticationManager authManager) {
+	public JWTAuthenticationVerficationFilter(AuthenticationManager authManager, VerifiedTokenCache tokenCache,
+			JwtTokenService tokenService) {
         super(authManager);
+        this.tokenCache = tokenCache;
+        this.tokenService = tokenService;
     }
 	
 	@Override
@@ -42,6 +47,8 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
             authentication = getAuthentication(req);
         } catch (TokenExpiredException e) {
             logger.error(LoggerMessage.TOKEN_EXPIRED);
+        } catch (JWTVerificationException e) {
+            logger.error(LoggerMessage.TOKEN_INVALID + e.getMessage());
         }
 
 
@@ -52,12 +59,22 @@ public class JWTAuthenticationVerficationFilter extends BasicAuthenticationFilte
 	private UsernamePasswordAuthenticationToken getAuthentication(HttpServletRequest req) {
 		String token = req.getHeader(SecurityConstants.HEADER_STRING);
         if (token != null) {
-            String user = JWT.require(HMAC512(SecurityConstants.SECRET.getBytes())).build()
-                    .verify(token.replace(SecurityConstants.TOKEN_PREFIX, ""))
-                    .getSubject();
+            String jwt = token.replace(SecurityConstants.TOKEN_PREFIX, "");
+            VerifiedTokenCache.VerifiedToken verified = tokenCache.get(jwt);
+            if (verified == null) {
+                DecodedJWT decoded = tokenService.verifyAccessToken(jwt);
+                verified = tokenCache.put(jwt, decoded.getSubject(), decoded.getId(), decoded.getExpiresAt());
+            }
+            // Checked on cache hits too, so a revocation takes effect on the next request
+            if (tokenService.isRevoked(verified.getId())) {
+                throw new JWTVerificationException(LoggerMessage.TOKEN_REVOKED);
+            }
 
-            if (user != null) {
-                return new UsernamePasswordAuthenticationToken(user, null, new ArrayList<>());
+            if (verified.getSubject() != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(verified.getSubject(), null, new ArrayList<>());
+                authentication.setDetails(verified);
+                return authentication;
             }
             return null;
         }
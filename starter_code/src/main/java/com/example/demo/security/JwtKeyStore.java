@@ -0,0 +1,302 @@
+package com.example.demo.security;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPrivateKeySpec;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPrivateCrtKeySpec;
+import java.security.spec.RSAPrivateKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.constants.LoggerMessage;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Signing and verification keys for JWTs, selected by the token's {@code kid}
+ * header. The HS512 key {@value #DEFAULT_KEY_ID} is built from
+ * {@code security.jwt.secret}; further HS512 ({@code oct}), RS256 ({@code RSA})
+ * and ES256 ({@code EC}, P-256) keys come from a JWKS document given inline in
+ * {@code security.jwt.jwks} or as a file in {@code security.jwt.jwks-file}. Keys
+ * are parsed once into ready verifiers. New tokens are signed with
+ * {@code security.jwt.active-key-id}, which needs a private key; every other key
+ * keeps verifying, so a rotation is: add the new key, switch the active id, and
+ * remove the old key once its tokens have expired. Tokens without a {@code kid}
+ * predate key ids and are checked against the default key.
+ * <p>
+ * The JWKS file is checked for changes every {@code security.jwt.jwks-refresh-ms},
+ * and at most once a second when a token names an unknown key. A changed key set
+ * clears the {@link VerifiedTokenCache}, so removed keys stop being accepted at once.
+ */
+@Component
+public class JwtKeyStore {
+
+	public static final String DEFAULT_KEY_ID = "default";
+	private static final long UNKNOWN_KEY_CHECK_MILLIS = 1000;
+
+	private static Logger logger = LoggerFactory.getLogger(JwtKeyStore.class);
+
+	private final ObjectMapper objectMapper;
+	private final VerifiedTokenCache tokenCache;
+	private final String secret;
+	private final String inlineJwks;
+	private final Path jwksFile;
+	private final long refreshMillis;
+	private final String activeKeyId;
+	private volatile Map<String, JwtKey> keys;
+	private volatile long jwksModified;
+	private volatile long lastCheck;
+
+	public JwtKeyStore(ObjectMapper objectMapper, VerifiedTokenCache tokenCache,
+			@Value("${security.jwt.secret:" + SecurityConstants.SECRET + "}") String secret,
+			@Value("${security.jwt.jwks:}") String inlineJwks,
+			@Value("${security.jwt.jwks-file:}") String jwksFile,
+			@Value("${security.jwt.jwks-refresh-ms:60000}") long refreshMillis,
+			@Value("${security.jwt.active-key-id:" + DEFAULT_KEY_ID + "}") String activeKeyId) {
+		this.objectMapper = objectMapper;
+		this.tokenCache = tokenCache;
+		this.secret = secret;
+		this.inlineJwks = inlineJwks;
+		this.jwksFile = jwksFile.trim().isEmpty() ? null : Paths.get(jwksFile.trim());
+		this.refreshMillis = Math.max(UNKNOWN_KEY_CHECK_MILLIS, refreshMillis);
+		this.activeKeyId = activeKeyId;
+		KeySet loaded = load();
+		this.keys = loaded.keys;
+		this.jwksModified = loaded.modified;
+		this.lastCheck = System.currentTimeMillis();
+	}
+
+	/**
+	 * Signs the token with the active key and names that key in its {@code kid} header.
+	 */
+	public String sign(JWTCreator.Builder token) {
+		JwtKey key = keys.get(activeKeyId);
+		return token.withKeyId(key.id).sign(key.algorithm);
+	}
+
+	/**
+	 * Verifies the token with the key its {@code kid} names, including that the
+	 * header's {@code alg} matches that key.
+	 *
+	 * @throws JWTVerificationException if the token is malformed, names an unknown key, or fails verification
+	 */
+	public DecodedJWT verify(String token) {
+		DecodedJWT decoded = JWT.decode(token);
+		String keyId = decoded.getKeyId() == null ? DEFAULT_KEY_ID : decoded.getKeyId();
+		refreshIfDue(System.currentTimeMillis(), false);
+		JwtKey key = keys.get(keyId);
+		if (key == null && refreshIfDue(System.currentTimeMillis(), true)) {
+			key = keys.get(keyId);
+		}
+		if (key == null) {
+			throw new JWTVerificationException(LoggerMessage.TOKEN_UNKNOWN_KEY + keyId);
+		}
+		return key.verifier.verify(decoded);
+	}
+
+	public String getActiveKeyId() {
+		return activeKeyId;
+	}
+
+	public boolean hasKey(String keyId) {
+		return keys.containsKey(keyId);
+	}
+
+	/**
+	 * Re-reads the JWKS file if it changed. Returns whether the key set was replaced.
+	 */
+	private boolean refreshIfDue(long now, boolean unknownKey) {
+		if (jwksFile == null || now - lastCheck < (unknownKey ? UNKNOWN_KEY_CHECK_MILLIS : refreshMillis)) {
+			return false;
+		}
+		synchronized (this) {
+			if (now - lastCheck < (unknownKey ? UNKNOWN_KEY_CHECK_MILLIS : refreshMillis)) {
+				return false;
+			}
+			lastCheck = now;
+			try {
+				if (Files.getLastModifiedTime(jwksFile).toMillis() == jwksModified) {
+					return false;
+				}
+				KeySet loaded = load();
+				keys = loaded.keys;
+				jwksModified = loaded.modified;
+			} catch (IOException | RuntimeException e) {
+				// Keep verifying with the keys we have rather than locking everyone out
+				logger.error(LoggerMessage.JWKS_RELOAD_FAILED + jwksFile, e);
+				return false;
+			}
+		}
+		tokenCache.clear();
+		logger.info(LoggerMessage.JWKS_RELOADED + keys.keySet());
+		return true;
+	}
+
+	/**
+	 * Reads the configured keys. The file's modification time is read before its
+	 * content and only returned with a successful parse, so a file caught half
+	 * written is read again even if the finished file keeps that time.
+	 */
+	private KeySet load() {
+		Map<String, JwtKey> loaded = new HashMap<>();
+		long modified = 0;
+		loaded.put(DEFAULT_KEY_ID, new JwtKey(DEFAULT_KEY_ID, Algorithm.HMAC512(secret.getBytes(StandardCharsets.UTF_8)), true));
+		if (!inlineJwks.trim().isEmpty()) {
+			parseJwks(inlineJwks, loaded);
+		}
+		if (jwksFile != null) {
+			try {
+				modified = Files.getLastModifiedTime(jwksFile).toMillis();
+				parseJwks(new String(Files.readAllBytes(jwksFile), StandardCharsets.UTF_8), loaded);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+		JwtKey active = loaded.get(activeKeyId);
+		if (active == null || !active.canSign) {
+			throw new IllegalStateException(LoggerMessage.JWT_ACTIVE_KEY_UNUSABLE + activeKeyId);
+		}
+		return new KeySet(loaded, modified);
+	}
+
+	private void parseJwks(String json, Map<String, JwtKey> keys) {
+		JsonNode root;
+		try {
+			root = objectMapper.readTree(json);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(LoggerMessage.JWKS_INVALID, e);
+		}
+		JsonNode entries = root.path("keys");
+		if (!entries.isArray()) {
+			throw new IllegalArgumentException(LoggerMessage.JWKS_INVALID);
+		}
+		for (JsonNode jwk : entries) {
+			if ("enc".equals(jwk.path("use").asText())) {
+				continue;
+			}
+			String keyId = jwk.path("kid").asText(null);
+			if (keyId == null || keyId.isEmpty()) {
+				throw new IllegalArgumentException(LoggerMessage.JWKS_INVALID + ": every key needs a kid");
+			}
+			try {
+				keys.put(keyId, parseJwk(keyId, jwk));
+			} catch (GeneralSecurityException | RuntimeException e) {
+				throw new IllegalArgumentException(LoggerMessage.JWKS_INVALID + ": key " + keyId, e);
+			}
+		}
+	}
+
+	private static JwtKey parseJwk(String keyId, JsonNode jwk) throws GeneralSecurityException {
+		String type = jwk.path("kty").asText();
+		String algorithm = jwk.path("alg").asText(null);
+		switch (type) {
+			case "oct":
+				requireAlgorithm(algorithm, "HS512");
+				return new JwtKey(keyId, Algorithm.HMAC512(bytes(jwk, "k")), true);
+			case "RSA": {
+				requireAlgorithm(algorithm, "RS256");
+				KeyFactory factory = KeyFactory.getInstance("RSA");
+				BigInteger modulus = integer(jwk, "n");
+				RSAPublicKey publicKey = (RSAPublicKey) factory.generatePublic(new RSAPublicKeySpec(modulus, integer(jwk, "e")));
+				RSAPrivateKey privateKey = null;
+				if (jwk.has("p")) {
+					// The CRT parameters make signing several times faster than n and d alone
+					privateKey = (RSAPrivateKey) factory.generatePrivate(new RSAPrivateCrtKeySpec(modulus, integer(jwk, "e"),
+							integer(jwk, "d"), integer(jwk, "p"), integer(jwk, "q"), integer(jwk, "dp"), integer(jwk, "dq"),
+							integer(jwk, "qi")));
+				} else if (jwk.has("d")) {
+					privateKey = (RSAPrivateKey) factory.generatePrivate(new RSAPrivateKeySpec(modulus, integer(jwk, "d")));
+				}
+				return new JwtKey(keyId, Algorithm.RSA256(publicKey, privateKey), privateKey != null);
+			}
+			case "EC": {
+				requireAlgorithm(algorithm, "ES256");
+				if (!"P-256".equals(jwk.path("crv").asText())) {
+					throw new IllegalArgumentException("ES256 needs the P-256 curve");
+				}
+				AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+				parameters.init(new ECGenParameterSpec("secp256r1"));
+				ECParameterSpec curve = parameters.getParameterSpec(ECParameterSpec.class);
+				KeyFactory factory = KeyFactory.getInstance("EC");
+				ECPublicKey publicKey = (ECPublicKey) factory.generatePublic(
+						new ECPublicKeySpec(new ECPoint(integer(jwk, "x"), integer(jwk, "y")), curve));
+				ECPrivateKey privateKey = jwk.has("d")
+						? (ECPrivateKey) factory.generatePrivate(new ECPrivateKeySpec(integer(jwk, "d"), curve)) : null;
+				return new JwtKey(keyId, Algorithm.ECDSA256(publicKey, privateKey), privateKey != null);
+			}
+			default:
+				throw new IllegalArgumentException("unsupported key type " + type);
+		}
+	}
+
+	private static void requireAlgorithm(String algorithm, String expected) {
+		if (algorithm != null && !algorithm.equals(expected)) {
+			throw new IllegalArgumentException("unsupported algorithm " + algorithm);
+		}
+	}
+
+	private static byte[] bytes(JsonNode jwk, String field) {
+		JsonNode value = jwk.get(field);
+		if (value == null || !value.isTextual()) {
+			throw new IllegalArgumentException("missing " + field);
+		}
+		return Base64.getUrlDecoder().decode(value.asText());
+	}
+
+	private static BigInteger integer(JsonNode jwk, String field) {
+		return new BigInteger(1, bytes(jwk, field));
+	}
+
+	private static final class JwtKey {
+		private final String id;
+		private final Algorithm algorithm;
+		private final JWTVerifier verifier;
+		private final boolean canSign;
+
+		private JwtKey(String id, Algorithm algorithm, boolean canSign) {
+			this.id = id;
+			this.algorithm = algorithm;
+			this.verifier = JWT.require(algorithm).build();
+			this.canSign = canSign;
+		}
+	}
+
+	private static final class KeySet {
+		private final Map<String, JwtKey> keys;
+		private final long modified;
+
+		private KeySet(Map<String, JwtKey> keys, long modified) {
+			this.keys = keys;
+			this.modified = modified;
+		}
+	}
+}
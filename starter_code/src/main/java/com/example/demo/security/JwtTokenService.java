@@ -0,0 +1,143 @@
+package com.example.demo.security;
+
+import java.util.Date;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Issues and checks the two kinds of token a login hands out. Access tokens live
+ * for {@code security.jwt.access-token-ms} and authenticate requests; refresh
+ * tokens live for {@code security.jwt.refresh-token-ms} and are only accepted by
+ * the refresh endpoint, which trades one for a new pair. Both carry a random
+ * {@code jti}, so either can be revoked through the {@link TokenRevocationList}
+ * before it expires. A refresh token is revoked as it is redeemed, so each one
+ * works exactly once.
+ */
+@Component
+public class JwtTokenService {
+
+    public static final String TOKEN_USE_CLAIM = "token_use";
+    public static final String ACCESS = "access";
+    public static final String REFRESH = "refresh";
+
+    private final JwtKeyStore keyStore;
+    private final TokenRevocationList revocationList;
+    private final long accessTokenMillis;
+    private final long refreshTokenMillis;
+
+    public JwtTokenService(JwtKeyStore keyStore, TokenRevocationList revocationList,
+                           @Value("${security.jwt.access-token-ms:900000}") long accessTokenMillis,
+                           @Value("${security.jwt.refresh-token-ms:" + SecurityConstants.EXPIRATION_TIME + "}") long refreshTokenMillis) {
+        this.keyStore = keyStore;
+        this.revocationList = revocationList;
+        this.accessTokenMillis = accessTokenMillis;
+        this.refreshTokenMillis = refreshTokenMillis;
+    }
+
+    public TokenPair issue(String username) {
+        long now = System.currentTimeMillis();
+        return new TokenPair(username, sign(username, ACCESS, now + accessTokenMillis),
+                sign(username, REFRESH, now + refreshTokenMillis));
+    }
+
+    /**
+     * Verifies a token presented as an access token. Tokens issued before token
+     * types existed carry no {@value #TOKEN_USE_CLAIM} claim and are still accepted.
+     *
+     * @throws JWTVerificationException if the token is invalid or is a refresh token
+     */
+    public DecodedJWT verifyAccessToken(String token) {
+        DecodedJWT decoded = keyStore.verify(token);
+        if (REFRESH.equals(decoded.getClaim(TOKEN_USE_CLAIM).asString())) {
+            throw new JWTVerificationException(LoggerMessage.TOKEN_WRONG_USE);
+        }
+        return decoded;
+    }
+
+    /**
+     * Redeems a refresh token for a new pair, revoking it so it cannot be used again.
+     *
+     * @throws JWTVerificationException if the token is invalid, not a refresh token, or already used or revoked
+     */
+    public TokenPair refresh(String refreshToken) {
+        DecodedJWT decoded = verifyRefreshToken(refreshToken);
+        if (!revocationList.revoke(decoded.getId(), decoded.getExpiresAt().getTime())) {
+            throw new JWTVerificationException(LoggerMessage.TOKEN_REVOKED);
+        }
+        return issue(decoded.getSubject());
+    }
+
+    /**
+     * Revokes a refresh token presented by its owner, for example on logout.
+     *
+     * @throws JWTVerificationException if the token is invalid, not a refresh token, or belongs to someone else
+     */
+    public void revokeRefreshToken(String refreshToken, String username) {
+        DecodedJWT decoded = verifyRefreshToken(refreshToken);
+        if (!decoded.getSubject().equals(username)) {
+            throw new JWTVerificationException(LoggerMessage.TOKEN_WRONG_USE);
+        }
+        revocationList.revoke(decoded.getId(), decoded.getExpiresAt().getTime());
+    }
+
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (tokenId != null) {
+            revocationList.revoke(tokenId, expiresAtMillis);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return revocationList.isRevoked(tokenId);
+    }
+
+    private DecodedJWT verifyRefreshToken(String token) {
+        DecodedJWT decoded = keyStore.verify(token);
+        if (!REFRESH.equals(decoded.getClaim(TOKEN_USE_CLAIM).asString()) || decoded.getId() == null
+                || decoded.getExpiresAt() == null) {
+            throw new JWTVerificationException(LoggerMessage.TOKEN_WRONG_USE);
+        }
+        if (revocationList.isRevoked(decoded.getId())) {
+            throw new JWTVerificationException(LoggerMessage.TOKEN_REVOKED);
+        }
+        return decoded;
+    }
+
+    private String sign(String username, String use, long expiresAt) {
+        return keyStore.sign(JWT.create()
+                .withSubject(username)
+                .withJWTId(UUID.randomUUID().toString())
+                .withClaim(TOKEN_USE_CLAIM, use)
+                .withExpiresAt(new Date(expiresAt)));
+    }
+
+    public static final class TokenPair {
+        private final String username;
+        private final String accessToken;
+        private final String refreshToken;
+
+        private TokenPair(String username, String accessToken, String refreshToken) {
+            this.username = username;
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public String getAccessToken() {
+            return accessToken;
+        }
+
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.security;
+
+import java.util.concurrent.CompletableFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Checks login credentials without holding the caller's thread for the BCrypt work.
+ * The user is looked up on the calling thread, through the same {@link UserCache}
+ * Spring Security's provider used; the password is matched, and re-encoded when its
+ * work factor is out of date, on the {@link PasswordHashingExecutor}; the rest runs
+ * on the application task executor, so database latency does not hold a hashing thread.
+ */
+@Component
+public class LoginAuthenticator {
+
+    private static Logger logger = LoggerFactory.getLogger(LoginAuthenticator.class);
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final UserCache userCache;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+    private final TaskExecutor taskExecutor;
+    // Unknown users are matched against this, so they take as long as a wrong password
+    private final String unknownUserHash;
+
+    public LoginAuthenticator(UserDetailsServiceImpl userDetailsService, UserCache userCache,
+            BCryptPasswordEncoder passwordEncoder, PasswordHashingExecutor passwordHashingExecutor,
+            TaskExecutor taskExecutor) {
+        this.userDetailsService = userDetailsService;
+        this.userCache = userCache;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.taskExecutor = taskExecutor;
+        this.unknownUserHash = passwordEncoder.encode("unknown-user-password");
+    }
+
+    /**
+     * @return the authenticated user, or a future failed with {@link BadCredentialsException}
+     *         or {@link PasswordHashingSaturatedException}
+     * @throws PasswordHashingSaturatedException if the hashing pool cannot take the match
+     */
+    public CompletableFuture<UserDetails> authenticate(String username, String password) {
+        UserDetails cached = userCache.getUserFromCache(username);
+        UserDetails user = cached != null ? cached : load(username);
+        String hash = user != null ? user.getPassword() : unknownUserHash;
+        return passwordHashingExecutor.submit(() -> passwordEncoder.matches(password, hash))
+                .thenComposeAsync(matched -> {
+                    if (!matched || user == null) {
+                        if (cached != null) {
+                            // The cached details may predate a password change; check against the stored ones
+                            userCache.removeUserFromCache(username);
+                            return authenticate(username, password);
+                        }
+                        throw new BadCredentialsException(LoggerMessage.LOGIN_ERROR_CREDENTIALS);
+                    }
+                    if (cached == null) {
+                        userCache.putUserInCache(user);
+                    }
+                    return upgrade(user, password);
+                }, taskExecutor);
+    }
+
+    private UserDetails load(String username) {
+        try {
+            return userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private CompletableFuture<UserDetails> upgrade(UserDetails user, String password) {
+        if (!passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return CompletableFuture.completedFuture(user);
+        }
+        try {
+            return passwordHashingExecutor.submit(() -> passwordEncoder.encode(password))
+                    .thenApplyAsync(hash -> userDetailsService.updatePassword(user, hash), taskExecutor);
+        } catch (PasswordHashingSaturatedException e) {
+            // The login still succeeds; the hash is upgraded on a later one
+            logger.warn(LoggerMessage.PASSWORD_HASHING_SATURATED);
+            return CompletableFuture.completedFuture(user);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.requests.LoginRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * Reads login credentials from a body of at most {@value SecurityConstants#MAX_LOGIN_BODY_BYTES}
+ * bytes. A larger or malformed body is rejected without being read further.
+ */
+@Component
+public class LoginRequestReader {
+
+    private final ObjectReader loginReader;
+
+    /**
+     * @param objectMapper the application's shared mapper; the reader built from it
+     *                     is reused by every login, so nothing is introspected per request
+     */
+    public LoginRequestReader(ObjectMapper objectMapper) {
+        this.loginReader = objectMapper.readerFor(LoginRequest.class);
+    }
+
+    /**
+     * @throws AuthenticationServiceException if the body is too large or not a login request
+     */
+    public LoginRequest read(HttpServletRequest req) {
+        if (req.getContentLengthLong() > SecurityConstants.MAX_LOGIN_BODY_BYTES) {
+            throw new AuthenticationServiceException(LoggerMessage.LOGIN_BODY_TOO_LARGE);
+        }
+        LoginRequest credentials;
+        try {
+            credentials = loginReader.readValue(new BoundedInputStream(req.getInputStream()));
+        } catch (IOException e) {
+            throw new AuthenticationServiceException(LoggerMessage.LOGIN_BODY_INVALID, e);
+        }
+        if (credentials == null || credentials.getUsername() == null || credentials.getPassword() == null) {
+            throw new AuthenticationServiceException(LoggerMessage.LOGIN_BODY_INVALID);
+        }
+        return credentials;
+    }
+
+    /**
+     * Fails the read once more than the login body limit has been consumed, for
+     * bodies sent without a Content-Length.
+     */
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining = SecurityConstants.MAX_LOGIN_BODY_BYTES;
+
+        private BoundedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                consumed(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining + 1));
+            if (read > 0) {
+                consumed(read);
+            }
+            return read;
+        }
+
+        private void consumed(int bytes) throws IOException {
+            remaining -= bytes;
+            if (remaining < 0) {
+                throw new IOException(LoggerMessage.LOGIN_BODY_TOO_LARGE);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Thrown when the password hashing pool cannot accept more work. It extends
+ * {@link AuthenticationServiceException} so a login that hits it fails through
+ * the normal authentication path and can be answered with 503.
+ */
+public class PasswordHashingSaturatedException extends AuthenticationServiceException {
+
+    public PasswordHashingSaturatedException() {
+        super(LoggerMessage.PASSWORD_HASHING_SATURATED);
+    }
+}
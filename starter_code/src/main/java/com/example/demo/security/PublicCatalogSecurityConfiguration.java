@@ -0,0 +1,75 @@
+package com.example.demo.security;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * Security chain for the public, non-personalized GET routes listed in
+ * {@code security.public-get-paths}, ordered ahead of {@link WebSecurityConfiguration}.
+ * By default these are the catalog list, single items by id and lookups by name;
+ * paging, search and the streaming export still need a token.
+ * Requests it matches skip JWT verification, the anonymous and authorization
+ * filters and the default no-store headers; only CORS and the remaining security
+ * headers are applied. Successful responses are marked cacheable by shared HTTP
+ * caches for {@code security.public-get-max-age-seconds}. An empty path list turns
+ * the chain off, so every request needs a token again.
+ */
+@Configuration
+@Order(1)
+public class PublicCatalogSecurityConfiguration extends WebSecurityConfigurerAdapter {
+
+	private final String[] publicGetPaths;
+	private final String cacheControl;
+
+	public PublicCatalogSecurityConfiguration(
+			@Value("${security.public-get-paths:/api/item,/api/item/{id:[0-9]+},/api/item/name/*}") String[] publicGetPaths,
+			@Value("${security.public-get-max-age-seconds:60}") long maxAgeSeconds) {
+		super(true);
+		this.publicGetPaths = publicGetPaths;
+		this.cacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().getHeaderValue();
+	}
+
+	@Override
+	protected void configure(HttpSecurity http) throws Exception {
+		http.requestMatcher(publicGetMatcher())
+				.cors().and()
+				.headers()
+					.cacheControl().disable()
+					.addHeaderWriter((request, response) -> {
+						// Errors are left to the default of not being cached
+						int status = response.getStatus();
+						if ((status == HttpServletResponse.SC_OK || status == HttpServletResponse.SC_NOT_MODIFIED)
+								&& !response.containsHeader(HttpHeaders.CACHE_CONTROL)) {
+							response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+						}
+					})
+					.and()
+				.sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS);
+	}
+
+	private RequestMatcher publicGetMatcher() {
+		List<RequestMatcher> matchers = new ArrayList<>();
+		for (String path : publicGetPaths) {
+			if (!path.trim().isEmpty()) {
+				matchers.add(new AntPathRequestMatcher(path.trim(), HttpMethod.GET.name()));
+			}
+		}
+		return matchers.isEmpty() ? request -> false : new OrRequestMatcher(matchers);
+	}
+}
@@ -6,5 +6,10 @@ public class SecurityConstants {
     public static final long EXPIRATION_TIME = 864_000_000; // 10 days
     public static final String TOKEN_PREFIX = "Bearer ";
     public static final String HEADER_STRING = "Authorization";
+    public static final String REFRESH_HEADER_STRING = "Refresh-Token";
+    public static final String LOGIN_URL = "/login";
     public static final String SIGN_UP_URL = "/api/user/create";
+    public static final String REFRESH_URL = "/api/user/token/refresh";
+    public static final String RETRY_AFTER_SECONDS = "1";
+    public static final int MAX_LOGIN_BODY_BYTES = 4096;
 }
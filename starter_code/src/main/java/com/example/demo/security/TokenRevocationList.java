@@ -0,0 +1,140 @@
+package com.example.demo.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Token ids ({@code jti}) revoked before their expiry, checked on every
+ * authenticated request. A Bloom filter answers the common case, a token that was
+ * never revoked, without touching the exact set; only its rare positives are
+ * confirmed against the set. Entries are kept until the token they name would have
+ * expired anyway. Expired ids are dropped from the set every
+ * {@code security.revocation.purge-interval-ms}, and the filter is then rebuilt
+ * from what remains, since a Bloom filter cannot forget.
+ * <p>
+ * The list lives in memory: revocations do not survive a restart and are not
+ * shared between instances. Access tokens are short-lived, so that window is
+ * bounded by {@code security.jwt.access-token-ms}.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final int expectedEntries;
+    private final long purgeIntervalMillis;
+    private volatile BloomFilter filter;
+    private volatile long lastPurge = System.currentTimeMillis();
+
+    public TokenRevocationList(@Value("${security.revocation.expected-entries:100000}") int expectedEntries,
+                               @Value("${security.revocation.purge-interval-ms:60000}") long purgeIntervalMillis) {
+        this.expectedEntries = Math.max(1, expectedEntries);
+        this.purgeIntervalMillis = purgeIntervalMillis;
+        this.filter = new BloomFilter(this.expectedEntries);
+    }
+
+    /**
+     * Revokes the token id until {@code expiresAtMillis}. Returns false if it was
+     * already revoked, so a single-use token can be redeemed exactly once.
+     */
+    public boolean revoke(String tokenId, long expiresAtMillis) {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= purgeIntervalMillis) {
+            purgeExpired();
+        }
+        synchronized (this) {
+            if (revoked.putIfAbsent(tokenId, expiresAtMillis) != null) {
+                return false;
+            }
+            filter.add(tokenId);
+        }
+        return true;
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return tokenId != null && filter.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Drops ids whose tokens have expired and rebuilds the filter from the rest.
+     */
+    public synchronized void purgeExpired() {
+        long now = System.currentTimeMillis();
+        lastPurge = now;
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, 2 * revoked.size()));
+        revoked.keySet().forEach(rebuilt::add);
+        filter = rebuilt;
+    }
+
+    public int size() {
+        return revoked.size();
+    }
+
+    /**
+     * Bloom filter over token ids, sized for a 1% false positive rate at its
+     * expected number of entries. The bit positions come from two 64-bit hashes
+     * combined as {@code h1 + i * h2}.
+     */
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        private BloomFilter(int expectedEntries) {
+            long optimalBits = (long) Math.ceil(-expectedEntries * Math.log(FALSE_POSITIVE_RATE) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = words * 64L;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedEntries * Math.log(2)));
+        }
+
+        private void add(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        private boolean mightContain(String value) {
+            long h1 = hash(value);
+            long h2 = mix(h1);
+            for (int i = 0; i < hashCount; i++) {
+                long bit = Math.floorMod(h1 + i * h2, bitCount);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // 64-bit FNV-1a over the UTF-16 code units
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // SplitMix64 finalizer, odd so every step visits a different bit
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return (value ^ (value >>> 31)) | 1;
+        }
+    }
+}
@@ -6,16 +6,22 @@ import com.example.demo.constants.LoggerMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.services.UserLookupService;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+	@Autowired
+	private UserLookupService userLookupService;
 
 	@Autowired
 	private UserRepository userRepository;
@@ -24,7 +30,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username);
+        User user = userLookupService.findByUsername(username);
         if (user == null) {
             logger.error(LoggerMessage.LOGIN_ERROR_USERNAME + username);
             throw new UsernameNotFoundException(username);
@@ -32,4 +38,29 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 
         return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), Collections.emptyList());
     }
+
+    /**
+     * Called after a successful login whose stored hash was made with a different
+     * BCrypt work factor than the configured one; stores the re-encoded password.
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        User user = userLookupService.findByUsername(userDetails.getUsername());
+        if (user == null) {
+            return userDetails;
+        }
+        user.setPassword(newPassword);
+        try {
+            userRepository.save(user);
+        } catch (OptimisticLockingFailureException e) {
+            // A concurrent login already stored an upgraded hash, so keep the details as they were
+            logger.info(LoggerMessage.PASSWORD_REHASH_CONCURRENT + user.getUsername());
+            userLookupService.evict(user.getUsername());
+            return userDetails;
+        }
+        userLookupService.evict(user.getUsername());
+        logger.info(LoggerMessage.PASSWORD_REHASHED + user.getUsername());
+
+        return new org.springframework.security.core.userdetails.User(user.getUsername(), newPassword, userDetails.getAuthorities());
+    }
 }
@@ -0,0 +1,138 @@
+package com.example.demo.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of JWTs that have already passed signature verification.
+ * Entries are keyed by a SHA-256 digest of the token and are dropped once the
+ * token's {@code exp} claim has passed. A maximum size of zero disables caching.
+ * Revocation is not cached: callers check the returned token id on every hit.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final ConcurrentHashMap<String, VerifiedToken> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final int maxEntries;
+
+    public VerifiedTokenCache(@Value("${security.token-cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns a previously verified, unexpired token, or null on a miss.
+     */
+    public VerifiedToken get(String token) {
+        if (maxEntries <= 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        String key = digest(token);
+        VerifiedToken entry = entries.get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Caches the token if it has a subject and an expiry, and returns its cached form either way.
+     */
+    public VerifiedToken put(String token, String subject, String id, Date expiresAt) {
+        VerifiedToken verified = new VerifiedToken(subject, id, expiresAt == null ? Long.MAX_VALUE : expiresAt.getTime());
+        if (maxEntries <= 0 || subject == null || expiresAt == null) {
+            return verified;
+        }
+        if (entries.size() >= maxEntries) {
+            purgeExpired();
+            if (entries.size() >= maxEntries) {
+                return verified;
+            }
+        }
+        entries.put(digest(token), verified);
+        return verified;
+    }
+
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt <= now);
+    }
+
+    /**
+     * Forgets every verified token, so each is checked again against the current keys.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    private static String digest(String token) {
+        MessageDigest digest = DIGEST.get();
+        digest.reset();
+        return Base64.getEncoder().encodeToString(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * What a request needs from a verified token: who it is for, and the id it
+     * would be revoked by.
+     */
+    public static final class VerifiedToken {
+        private final String subject;
+        private final String id;
+        private final long expiresAt;
+
+        private VerifiedToken(String subject, String id, long expiresAt) {
+            this.subject = subject;
+            this.id = id;
+            this.expiresAt = expiresAt;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.services;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.requests.CartLineChange;
+
+/**
+ * Applies cart changes without losing concurrent updates. Every attempt runs in
+ * its own short transaction, with a persistence context of its own, that re-reads
+ * the cart under a row lock, so writers to the same cart are serialized, and the
+ * cart's {@code @Version} guards the final update. An attempt that still fails
+ * with a concurrency error (lock timeout, deadlock or stale version) backs off
+ * for a short random interval and replays its changes against the freshly loaded
+ * cart, up to {@code cart.update.max-attempts} times. The request's open-in-view
+ * persistence context is set aside meanwhile, so the entities the caller loaded
+ * stay managed.
+ */
+@Service
+public class CartService {
+
+	private static Logger logger = LoggerFactory.getLogger(CartService.class);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+	private final TransactionTemplate transactionTemplate;
+	private final int maxAttempts;
+	private final long maxBackoffNanos;
+
+	public CartService(PlatformTransactionManager transactionManager,
+			@Value("${cart.update.max-attempts:10}") int maxAttempts,
+			@Value("${cart.update.max-backoff-ms:20}") long maxBackoffMillis) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxAttempts = Math.max(1, maxAttempts);
+		this.maxBackoffNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxBackoffMillis));
+	}
+
+	/**
+	 * Applies the changes in order to the cart with the given id. A positive
+	 * quantity adds units, a negative one removes them. Every item id must be
+	 * present in {@code items}; carts key their lines by item id, so detached
+	 * or cached item instances are fine. The returned cart is detached with its
+	 * lines loaded; use it rather than the caller's copy afterwards.
+	 *
+	 * @throws CartUpdateConflictException if every attempt lost to a concurrent update
+	 * @throws IllegalArgumentException if a line would exceed {@link com.example.demo.model.persistence.CartLine#MAX_QUANTITY};
+	 *         none of the changes are applied then
+	 */
+	public Cart applyChanges(Long cartId, List<CartLineChange> changes, Map<Long, Item> items) {
+		return update(cartId, cart -> {
+			for (CartLineChange change : changes) {
+				Item item = items.get(change.getItemId());
+				if (change.getQuantity() > 0) {
+					cart.addItem(item, change.getQuantity());
+				} else {
+					cart.removeItem(item, -change.getQuantity());
+				}
+			}
+			return cart;
+		});
+	}
+
+	/**
+	 * Runs {@code work} against the locked cart in one transaction and returns its
+	 * result. The work may be replayed after a conflict, so it must only change
+	 * state through the given cart and the current persistence context.
+	 *
+	 * @throws CartUpdateConflictException if every attempt lost to a concurrent update
+	 */
+	public <T> T update(Long cartId, Function<Cart, T> work) {
+		// Open-in-view may hold the cart and the user, possibly stale. Set its context aside
+		// and run every attempt in a fresh one, so the caller's entities stay managed
+		EntityManagerHolder callerContext = TransactionSynchronizationManager.isActualTransactionActive() ? null
+				: (EntityManagerHolder) TransactionSynchronizationManager.unbindResourceIfPossible(entityManagerFactory);
+		try {
+			for (int attempt = 1; ; attempt++) {
+				try {
+					return inFreshContext(callerContext, () -> transactionTemplate.execute(status -> work.apply(lock(cartId))));
+				} catch (ConcurrencyFailureException e) {
+					if (attempt >= maxAttempts) {
+						logger.warn(LoggerMessage.CART_UPDATE_CONFLICT + " (cart " + cartId + ", " + attempt + " attempts)");
+						throw new CartUpdateConflictException(e);
+					}
+					backOff(attempt);
+				}
+			}
+		} finally {
+			if (callerContext != null) {
+				TransactionSynchronizationManager.bindResource(entityManagerFactory, callerContext);
+			}
+		}
+	}
+
+	private <T> T inFreshContext(EntityManagerHolder callerContext, Supplier<T> attempt) {
+		if (callerContext == null) {
+			// Nothing bound, so the transaction opens and closes an entity manager of its own
+			return attempt.get();
+		}
+		// The caller's session keeps its connection until the request ends; share it rather than
+		// taking a second one from the pool for every concurrent cart update
+		Session session = callerContext.getEntityManager().unwrap(Session.class).sessionWithOptions()
+				.connection().openSession();
+		TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(session));
+		try {
+			return attempt.get();
+		} finally {
+			TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+			session.close();
+		}
+	}
+
+	private Cart lock(Long cartId) {
+		// The context is new, so the cart is read afresh; the row lock makes writers queue instead of conflicting
+		return entityManager.find(Cart.class, cartId, LockModeType.PESSIMISTIC_WRITE);
+	}
+
+	private void backOff(int attempt) {
+		long ceiling = Math.min(maxBackoffNanos, TimeUnit.MICROSECONDS.toNanos(100) << Math.min(attempt, 16));
+		LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(ceiling));
+	}
+}
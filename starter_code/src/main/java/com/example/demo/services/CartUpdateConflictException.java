@@ -0,0 +1,13 @@
+package com.example.demo.services;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Thrown when a cart update still conflicts with concurrent writers after all retries.
+ */
+public class CartUpdateConflictException extends RuntimeException {
+
+	public CartUpdateConflictException(Throwable cause) {
+		super(LoggerMessage.CART_UPDATE_CONFLICT, cause);
+	}
+}
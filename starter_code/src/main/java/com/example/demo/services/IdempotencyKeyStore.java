@@ -0,0 +1,78 @@
+package com.example.demo.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Bounded, expiring record of requests made with an {@code Idempotency-Key}.
+ * The first request for a key runs its action and stores the response. Requests
+ * arriving while it runs wait for that result, and later ones get the stored
+ * response back without running the action again. Server errors and exceptions
+ * are not stored, so the client may retry with the same key.
+ */
+@Component
+public class IdempotencyKeyStore {
+
+	private final Cache<String, CompletableFuture<StoredResponse>> responses;
+	private final long waitMillis;
+
+	public IdempotencyKeyStore(@Value("${idempotency.max-keys:100000}") long maxKeys,
+			@Value("${idempotency.ttl-seconds:86400}") long ttlSeconds,
+			@Value("${idempotency.wait-ms:10000}") long waitMillis) {
+		this.responses = Caffeine.newBuilder()
+				.maximumSize(maxKeys)
+				.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+				.build();
+		this.waitMillis = waitMillis;
+	}
+
+	/**
+	 * Returns the stored response for the key, or runs {@code action} once to produce it.
+	 *
+	 * @throws IdempotentRequestInProgressException if the first request for the key
+	 *         failed or did not finish within {@code idempotency.wait-ms}
+	 */
+	public StoredResponse execute(String key, Supplier<StoredResponse> action) {
+		CompletableFuture<StoredResponse> pending = new CompletableFuture<>();
+		CompletableFuture<StoredResponse> existing = responses.asMap().putIfAbsent(key, pending);
+		if (existing != null) {
+			return awaitReplay(existing);
+		}
+		try {
+			StoredResponse response = action.get();
+			if (response.getStatus() >= 500) {
+				responses.asMap().remove(key, pending);
+			}
+			pending.complete(response);
+			return response;
+		} catch (RuntimeException | Error e) {
+			responses.asMap().remove(key, pending);
+			pending.completeExceptionally(e);
+			throw e;
+		}
+	}
+
+	public long size() {
+		return responses.estimatedSize();
+	}
+
+	private StoredResponse awaitReplay(CompletableFuture<StoredResponse> existing) {
+		try {
+			return existing.get(waitMillis, TimeUnit.MILLISECONDS).asReplay();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IdempotentRequestInProgressException(e);
+		} catch (ExecutionException | TimeoutException e) {
+			throw new IdempotentRequestInProgressException(e);
+		}
+	}
+}
@@ -0,0 +1,14 @@
+package com.example.demo.services;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Thrown to a request that reused an idempotency key whose first request failed
+ * or is still running.
+ */
+public class IdempotentRequestInProgressException extends RuntimeException {
+
+	public IdempotentRequestInProgressException(Throwable cause) {
+		super(LoggerMessage.IDEMPOTENT_REQUEST_IN_PROGRESS, cause);
+	}
+}
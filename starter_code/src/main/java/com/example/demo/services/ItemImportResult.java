@@ -0,0 +1,51 @@
+package com.example.demo.services;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of a catalog import: how many rows were stored and rejected, how fast,
+ * and the first rejections, each prefixed with the line the row started on.
+ */
+@JsonInclude(JsonInclude.Include.NON_EMPTY)
+public class ItemImportResult {
+
+	private final long imported;
+	private final long rejected;
+	private final long elapsedMillis;
+	private final List<String> errors;
+
+	ItemImportResult(long imported, long rejected, long elapsedMillis, List<String> errors) {
+		this.imported = imported;
+		this.rejected = rejected;
+		this.elapsedMillis = elapsedMillis;
+		this.errors = errors;
+	}
+
+	public long getImported() {
+		return imported;
+	}
+
+	public long getRejected() {
+		return rejected;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	public long getRowsPerSecond() {
+		return ItemImportService.rowsPerSecond(imported + rejected, elapsedMillis);
+	}
+
+	public List<String> getErrors() {
+		return errors;
+	}
+
+	@Override
+	public String toString() {
+		return "imported=" + imported + ", rejected=" + rejected + ", elapsedMillis=" + elapsedMillis
+				+ ", rowsPerSecond=" + getRowsPerSecond();
+	}
+}
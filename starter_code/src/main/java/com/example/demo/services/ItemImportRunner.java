@@ -0,0 +1,54 @@
+package com.example.demo.services;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Command line entry point for {@link ItemImportService}. Starting the application
+ * with {@code --import-items=catalog.csv} imports that file before the first
+ * request is served; the format follows the file extension unless
+ * {@code --import-format=csv|ndjson} is given. Add
+ * {@code --spring.main.web-application-type=none} to exit once the import is done.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ItemImportRunner implements ApplicationRunner {
+
+	static final String FILE_OPTION = "import-items";
+	static final String FORMAT_OPTION = "import-format";
+
+	@Autowired
+	private ItemImportService itemImportService;
+
+	@Override
+	public void run(ApplicationArguments args) throws Exception {
+		List<String> files = args.getOptionValues(FILE_OPTION);
+		if (files == null) {
+			return;
+		}
+		List<String> formats = args.getOptionValues(FORMAT_OPTION);
+		for (String file : files) {
+			Path path = Paths.get(file);
+			ItemImportService.Format format = ItemImportService.formatOf(
+					formats == null || formats.isEmpty() ? path.getFileName().toString() : formats.get(0));
+			if (format == null) {
+				throw new IllegalArgumentException(LoggerMessage.ITEM_IMPORT_UNSUPPORTED_FORMAT + ": " + file);
+			}
+			try (InputStream input = Files.newInputStream(path)) {
+				itemImportService.importItems(input, format);
+			}
+		}
+	}
+}
@@ -0,0 +1,447 @@
+package com.example.demo.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams a catalog in CSV or NDJSON into the item table. The input is read one
+ * record at a time and only the current chunk of {@code items.import.chunk-size}
+ * items is held in memory; each chunk is saved in its own transaction, which
+ * Hibernate sends as JDBC batches since item ids come from a sequence. The
+ * persistence context is cleared after every chunk, so saved items do not pile up
+ * in the request's open-in-view entity manager. Rows that cannot be parsed or
+ * stored are counted and reported instead of failing the import, as are records
+ * longer than {@code items.import.max-record-length} characters, which are never
+ * buffered beyond that limit.
+ */
+@Service
+public class ItemImportService {
+
+	public enum Format { CSV, NDJSON }
+
+	static final int MAX_REPORTED_ERRORS = 100;
+	private static final int MAX_TEXT_LENGTH = 255;
+
+	private static Logger logger = LoggerFactory.getLogger(ItemImportService.class);
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+	private final int chunkSize;
+	private final long progressInterval;
+	private final int maxRecordLength;
+
+	public ItemImportService(PlatformTransactionManager transactionManager,
+			@Value("${items.import.chunk-size:1000}") int chunkSize,
+			@Value("${items.import.progress-interval:100000}") long progressInterval,
+			@Value("${items.import.max-record-length:65536}") int maxRecordLength) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.chunkSize = Math.max(1, chunkSize);
+		this.progressInterval = Math.max(1, progressInterval);
+		this.maxRecordLength = Math.max(1, maxRecordLength);
+	}
+
+	/**
+	 * Maps a media type or file name to a format, or returns null if it is neither CSV nor NDJSON.
+	 */
+	public static Format formatOf(String contentTypeOrFileName) {
+		if (contentTypeOrFileName == null) {
+			return null;
+		}
+		String value = contentTypeOrFileName.toLowerCase(Locale.ROOT);
+		if (value.contains("csv")) {
+			return Format.CSV;
+		}
+		if (value.contains("ndjson") || value.contains("jsonl") || value.contains("json-seq")) {
+			return Format.NDJSON;
+		}
+		return null;
+	}
+
+	/**
+	 * Imports every record of the input, which is read as UTF-8 and left open.
+	 * A CSV input must start with a header naming the name, price and description
+	 * columns; other columns, including id, are ignored.
+	 *
+	 * @throws IllegalArgumentException if the CSV header lacks a required column
+	 */
+	public ItemImportResult importItems(InputStream input, Format format) throws IOException {
+		Import run = new Import(format, new InputStreamReader(input, StandardCharsets.UTF_8));
+		String record;
+		while ((record = run.nextRecord()) != null) {
+			run.accept(record);
+		}
+		run.flush();
+		ItemImportResult result = run.result();
+		logger.info(LoggerMessage.ITEM_IMPORT_FINISHED + result);
+		return result;
+	}
+
+	static long rowsPerSecond(long rows, long elapsedMillis) {
+		return elapsedMillis == 0 ? rows * 1000 : rows * 1000 / elapsedMillis;
+	}
+
+	/**
+	 * State of one import; not shared between threads.
+	 */
+	private final class Import {
+		private final Format format;
+		private final Reader reader;
+		private final char[] buffer = new char[8192];
+		private int position;
+		private int limit;
+		private final long started = System.nanoTime();
+		private final List<Item> chunk = new ArrayList<>(chunkSize);
+		private final List<Long> chunkLines = new ArrayList<>(chunkSize);
+		private final List<String> errors = new ArrayList<>();
+		private Map<String, Integer> columns;
+		private long line;
+		private long recordLine;
+		private long imported;
+		private long rejected;
+		// Set when the current record ran past the length limit
+		private boolean tooLong;
+		// Quote scan of the CSV record being read, resumed as its lines arrive
+		private int scanned;
+		private boolean quoted;
+		private boolean fieldStart;
+
+		private Import(Format format, Reader reader) {
+			this.format = format;
+			this.reader = reader;
+		}
+
+		/**
+		 * Reads the next non-blank record. A quoted CSV field may span several lines,
+		 * until the record reaches the length limit.
+		 */
+		private String nextRecord() throws IOException {
+			StringBuilder record = new StringBuilder();
+			do {
+				record.setLength(0);
+				tooLong = false;
+				if (!readLine(record)) {
+					return null;
+				}
+			} while (!tooLong && isBlank(record));
+			recordLine = line;
+			if (format == Format.CSV) {
+				scanned = 0;
+				quoted = false;
+				fieldStart = true;
+				while (!tooLong && hasOpenQuote(record)) {
+					append(record, '\n');
+					if (!readLine(record)) {
+						break;
+					}
+				}
+			}
+			return record.toString();
+		}
+
+		/**
+		 * Appends the next line, without its terminator, to the record; returns false at
+		 * the end of the input. Characters past the record length limit are read but not
+		 * kept, so a runaway record costs time but not memory.
+		 */
+		private boolean readLine(StringBuilder record) throws IOException {
+			int c = read();
+			if (c < 0) {
+				return false;
+			}
+			line++;
+			if (line == 1 && c == '\uFEFF') {
+				c = read();
+			}
+			int start = record.length();
+			while (c >= 0 && c != '\n') {
+				append(record, (char) c);
+				c = read();
+			}
+			if (record.length() > start && record.charAt(record.length() - 1) == '\r') {
+				record.setLength(record.length() - 1);
+			}
+			return true;
+		}
+
+		private void append(StringBuilder record, char c) {
+			if (record.length() < maxRecordLength) {
+				record.append(c);
+			} else {
+				tooLong = true;
+			}
+		}
+
+		private int read() throws IOException {
+			if (position == limit) {
+				limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+				position = 0;
+				if (limit == 0) {
+					return -1;
+				}
+			}
+			return buffer[position++];
+		}
+
+		/**
+		 * Whether the record so far ends inside a quoted field, scanning only what was
+		 * appended since the last call. As in {@link #splitCsv}, a quote opens a quoted
+		 * field only at the start of the field and is a literal character elsewhere.
+		 */
+		private boolean hasOpenQuote(CharSequence record) {
+			for (; scanned < record.length(); scanned++) {
+				char c = record.charAt(scanned);
+				if (quoted) {
+					if (c != '"') {
+						continue;
+					}
+					if (scanned + 1 < record.length() && record.charAt(scanned + 1) == '"') {
+						scanned++;
+					} else {
+						quoted = false;
+					}
+				} else if (c == ',') {
+					fieldStart = true;
+				} else {
+					quoted = c == '"' && fieldStart;
+					fieldStart = false;
+				}
+			}
+			return quoted;
+		}
+
+		private void accept(String record) {
+			if (tooLong) {
+				if (format == Format.CSV && columns == null) {
+					throw new IllegalArgumentException(LoggerMessage.ITEM_IMPORT_MISSING_COLUMNS);
+				}
+				reject(recordLine, "record is longer than " + maxRecordLength + " characters");
+				return;
+			}
+			Item item;
+			try {
+				if (format == Format.CSV) {
+					List<String> fields = splitCsv(record);
+					if (columns == null) {
+						columns = header(fields);
+						return;
+					}
+					item = fromCsv(fields);
+				} else {
+					item = fromJson(record);
+				}
+			} catch (RejectedRowException e) {
+				reject(recordLine, e.getMessage());
+				return;
+			}
+			chunk.add(item);
+			chunkLines.add(recordLine);
+			if (chunk.size() >= chunkSize) {
+				flush();
+			}
+		}
+
+		private void flush() {
+			if (chunk.isEmpty()) {
+				return;
+			}
+			try {
+				transactionTemplate.executeWithoutResult(status -> {
+					itemRepository.saveAll(chunk);
+					entityManager.flush();
+				});
+				imported += chunk.size();
+			} catch (RuntimeException e) {
+				// One bad row must not take the rest of the chunk with it
+				logger.warn(LoggerMessage.ITEM_IMPORT_CHUNK_FAILED + chunkLines.get(0), e);
+				for (int i = 0; i < chunk.size(); i++) {
+					Item item = chunk.get(i);
+					item.setId(null);
+					try {
+						transactionTemplate.executeWithoutResult(status -> itemRepository.save(item));
+						imported++;
+					} catch (RuntimeException single) {
+						reject(chunkLines.get(i), LoggerMessage.ITEM_IMPORT_NOT_STORED);
+					}
+				}
+			}
+			// Under open-in-view the saved items would otherwise stay managed until the request ends
+			entityManager.clear();
+			long before = imported + rejected - chunk.size();
+			chunk.clear();
+			chunkLines.clear();
+			if ((imported + rejected) / progressInterval > before / progressInterval) {
+				logger.info(LoggerMessage.ITEM_IMPORT_PROGRESS + result());
+			}
+		}
+
+		private void reject(long recordLine, String message) {
+			rejected++;
+			if (errors.size() < MAX_REPORTED_ERRORS) {
+				errors.add("line " + recordLine + ": " + message);
+			}
+		}
+
+		private ItemImportResult result() {
+			long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+			return new ItemImportResult(imported, rejected, elapsedMillis, new ArrayList<>(errors));
+		}
+
+		private Map<String, Integer> header(List<String> fields) {
+			Map<String, Integer> header = new HashMap<>();
+			for (int i = 0; i < fields.size(); i++) {
+				header.putIfAbsent(fields.get(i).trim().toLowerCase(Locale.ROOT), i);
+			}
+			if (!header.containsKey("name") || !header.containsKey("price") || !header.containsKey("description")) {
+				throw new IllegalArgumentException(LoggerMessage.ITEM_IMPORT_MISSING_COLUMNS);
+			}
+			return header;
+		}
+
+		private Item fromCsv(List<String> fields) {
+			return toItem(column(fields, "name"), column(fields, "price"), column(fields, "description"));
+		}
+
+		private String column(List<String> fields, String name) {
+			int index = columns.get(name);
+			return index < fields.size() ? fields.get(index) : null;
+		}
+
+		private Item fromJson(String record) {
+			JsonNode node;
+			try {
+				node = objectMapper.readTree(record);
+			} catch (JsonProcessingException e) {
+				throw new RejectedRowException("malformed JSON");
+			}
+			if (node == null || !node.isObject()) {
+				throw new RejectedRowException("expected a JSON object");
+			}
+			return toItem(text(node, "name"), text(node, "price"), text(node, "description"));
+		}
+
+		private String text(JsonNode node, String field) {
+			JsonNode value = node.get(field);
+			return value == null || value.isNull() ? null : value.asText();
+		}
+	}
+
+	private static Item toItem(String name, String price, String description) {
+		Item item = new Item();
+		item.setName(requireText("name", name));
+		item.setDescription(requireText("description", description));
+		if (price == null || price.trim().isEmpty()) {
+			throw new RejectedRowException("price is required");
+		}
+		try {
+			item.setPrice(new BigDecimal(price.trim()));
+		} catch (NumberFormatException e) {
+			throw new RejectedRowException("price is not a number: " + price);
+		}
+		if (item.getPrice().signum() < 0) {
+			throw new RejectedRowException("price must not be negative");
+		}
+		return item;
+	}
+
+	private static String requireText(String field, String value) {
+		if (value == null || value.trim().isEmpty()) {
+			throw new RejectedRowException(field + " is required");
+		}
+		String trimmed = value.trim();
+		if (trimmed.length() > MAX_TEXT_LENGTH) {
+			throw new RejectedRowException(field + " is longer than " + MAX_TEXT_LENGTH + " characters");
+		}
+		return trimmed;
+	}
+
+	private static boolean isBlank(CharSequence text) {
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) > ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Splits one RFC 4180 record: fields are comma separated and may be quoted,
+	 * with a doubled quote standing for a literal one. A quote anywhere but at the
+	 * start of a field is kept as a literal character, so {@code 12" Pizza} is a
+	 * plain field.
+	 */
+	static List<String> splitCsv(String record) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		boolean fieldStart = true;
+		for (int i = 0; i < record.length(); i++) {
+			char c = record.charAt(i);
+			if (quoted) {
+				if (c != '"') {
+					field.append(c);
+				} else if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				}
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+				fieldStart = true;
+				continue;
+			} else if (c == '"' && fieldStart) {
+				quoted = true;
+			} else if (c != '\r') {
+				field.append(c);
+			}
+			fieldStart = false;
+		}
+		if (quoted) {
+			throw new RejectedRowException("unterminated quoted field");
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	private static final class RejectedRowException extends RuntimeException {
+		private RejectedRowException(String message) {
+			super(message, null, false, false);
+		}
+	}
+}
@@ -0,0 +1,13 @@
+package com.example.demo.services;
+
+import com.example.demo.constants.LoggerMessage;
+
+/**
+ * Thrown when the write-behind order queue has no room for another order.
+ */
+public class OrderQueueFullException extends RuntimeException {
+
+	public OrderQueueFullException() {
+		super(LoggerMessage.ORDER_QUEUE_FULL);
+	}
+}
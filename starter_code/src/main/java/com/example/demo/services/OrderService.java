@@ -0,0 +1,96 @@
+package com.example.demo.services;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+
+/**
+ * Turns carts into orders. In the default {@code sync} ingestion mode the order
+ * is inserted in the same transaction that empties the cart. In {@code batched}
+ * mode that transaction only draws the order id from the sequence and empties the
+ * cart; the order itself is handed to {@link WriteBehindOrderWriter} after the
+ * commit and shows up in the order history once the writer has flushed it.
+ */
+@Service
+public class OrderService {
+
+	public enum IngestionMode { SYNC, BATCHED }
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private WriteBehindOrderWriter writer;
+
+	private final IngestionMode mode;
+
+	public OrderService(@Value("${orders.ingestion.mode:sync}") String mode) {
+		this.mode = IngestionMode.valueOf(mode.trim().toUpperCase());
+	}
+
+	public IngestionMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Creates an order from the cart and empties the cart. Returns null when the
+	 * cart is empty. In batched mode the returned order has its id but is not yet
+	 * stored.
+	 *
+	 * @throws CartUpdateConflictException if every attempt lost to a concurrent cart update
+	 * @throws OrderQueueFullException if batched and the write-behind queue is full
+	 */
+	public UserOrder submit(Long cartId) {
+		if (mode == IngestionMode.SYNC) {
+			return cartService.update(cartId, cart -> {
+				if (cart.isEmpty()) {
+					return null;
+				}
+				UserOrder order = orderRepository.save(UserOrder.createFromCart(cart));
+				cart.clear();
+				return order;
+			});
+		}
+		// Reserve the queue slot first, so once the cart is emptied the order cannot be turned away
+		writer.reserve();
+		UserOrder order;
+		try {
+			order = cartService.update(cartId, cart -> {
+				if (cart.isEmpty()) {
+					return null;
+				}
+				UserOrder created = UserOrder.createFromCart(cart);
+				created.setId(nextId(created));
+				cart.clear();
+				return created;
+			});
+		} catch (RuntimeException e) {
+			writer.release();
+			throw e;
+		}
+		if (order == null) {
+			writer.release();
+			return null;
+		}
+		writer.enqueue(order);
+		return order;
+	}
+
+	private Long nextId(UserOrder order) {
+		SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+		return (Long) session.getEntityPersister(null, order).getIdentifierGenerator().generate(session, order);
+	}
+}
@@ -0,0 +1,48 @@
+package com.example.demo.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Status and serialized JSON body of a response, kept so it can be replayed verbatim.
+ */
+public final class StoredResponse {
+
+	private final int status;
+	private final byte[] body;
+	private final boolean replayed;
+
+	public StoredResponse(int status, byte[] body) {
+		this(status, body, false);
+	}
+
+	private StoredResponse(int status, byte[] body, boolean replayed) {
+		this.status = status;
+		this.body = body;
+		this.replayed = replayed;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public boolean isReplayed() {
+		return replayed;
+	}
+
+	StoredResponse asReplay() {
+		return new StoredResponse(status, body, true);
+	}
+
+	public ResponseEntity<Object> toResponseEntity(String replayHeader) {
+		ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.valueOf(status));
+		if (replayed) {
+			builder.header(replayHeader, "true");
+		}
+		if (body == null) {
+			return builder.build();
+		}
+		return builder.contentType(MediaType.APPLICATION_JSON).body(body);
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+
+/**
+ * Resolves users by username with two cache layers. A bounded shared cache maps
+ * usernames to ids so the lookup becomes a primary-key load, and primary-key loads
+ * are served from the request's persistence context (open-in-view) when the same
+ * user is needed again during the request.
+ */
+@Service
+public class UserLookupService {
+
+	public static final String USER_ID_CACHE = "userIds";
+	public static final String USER_DETAILS_CACHE = "userDetails";
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	public User findByUsername(String username) {
+		if (username == null) {
+			return null;
+		}
+		Long id = userRepository.findIdByUsername(username);
+		if (id == null) {
+			return null;
+		}
+		User user = userRepository.findById(id).orElse(null);
+		if (user == null || !username.equals(user.getUsername())) {
+			evict(username);
+			return userRepository.findByUsername(username);
+		}
+		return user;
+	}
+
+	/**
+	 * Drops every cached entry for the username; call whenever a user is created or changed.
+	 */
+	public void evict(String username) {
+		evict(USER_ID_CACHE, username);
+		evict(USER_DETAILS_CACHE, username);
+	}
+
+	private void evict(String cacheName, String username) {
+		Cache cache = cacheManager.getCache(cacheName);
+		if (cache != null) {
+			cache.evict(username);
+		}
+	}
+}
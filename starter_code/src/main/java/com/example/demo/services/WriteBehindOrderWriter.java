@@ -0,0 +1,305 @@
+package com.example.demo.services;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.FailedOrder;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * Bounded queue of accepted orders and the single background thread that saves
+ * them. Orders already carry their sequence id, so the writer can insert up to
+ * {@code orders.write-behind.batch-size} of them per transaction and Hibernate
+ * sends them as JDBC batches. Capacity is reserved before the order is accepted
+ * and released once it is written, so an accepted order always has a slot.
+ * Transient database failures, such as a lost connection or a lock timeout, are
+ * retried with backoff for as long as they last, keeping the batch and its slots.
+ * An order that fails for good, such as on a constraint violation, is moved to
+ * the {@link FailedOrder} dead-letter table. On shutdown the writer stops taking
+ * reservations and drains what is queued; whatever is left after
+ * {@code orders.write-behind.shutdown-timeout-ms} is written, or dead-lettered,
+ * directly before shutdown returns.
+ */
+@Component
+public class WriteBehindOrderWriter {
+
+	private static Logger logger = LoggerFactory.getLogger(WriteBehindOrderWriter.class);
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private final TransactionTemplate transactionTemplate;
+	private final BlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+	private final Semaphore capacity;
+	private final int queueCapacity;
+	private final int batchSize;
+	private final long flushIntervalMillis;
+	private final long shutdownTimeoutMillis;
+	private final long maxRetryBackoffMillis;
+	private final Object flushed = new Object();
+	private volatile boolean accepting = true;
+	// Set with the interrupt, which the JDBC driver may swallow
+	private volatile boolean stopped;
+	private Thread thread;
+	// Orders the writer thread held when shutdown interrupted it; read after joining the thread
+	private final List<PendingOrder> leftOver = new ArrayList<>();
+
+	public WriteBehindOrderWriter(PlatformTransactionManager transactionManager,
+			@Value("${orders.write-behind.queue-capacity:10000}") int queueCapacity,
+			@Value("${orders.write-behind.batch-size:500}") int batchSize,
+			@Value("${orders.write-behind.flush-interval-ms:20}") long flushIntervalMillis,
+			@Value("${orders.write-behind.shutdown-timeout-ms:30000}") long shutdownTimeoutMillis,
+			@Value("${orders.write-behind.max-retry-backoff-ms:5000}") long maxRetryBackoffMillis) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.queueCapacity = Math.max(1, queueCapacity);
+		this.capacity = new Semaphore(this.queueCapacity);
+		this.batchSize = Math.max(1, batchSize);
+		this.flushIntervalMillis = Math.max(1, flushIntervalMillis);
+		this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+		this.maxRetryBackoffMillis = Math.max(this.flushIntervalMillis, maxRetryBackoffMillis);
+	}
+
+	/**
+	 * Reserves a slot for one order, starting the writer thread on first use.
+	 * Every successful reservation must be followed by {@link #enqueue} or {@link #release}.
+	 *
+	 * @throws OrderQueueFullException if the queue is full or the writer is shutting down
+	 */
+	public void reserve() {
+		if (!capacity.tryAcquire()) {
+			throw new OrderQueueFullException();
+		}
+		if (!accepting) {
+			capacity.release();
+			throw new OrderQueueFullException();
+		}
+		start();
+	}
+
+	public void release() {
+		release(1);
+	}
+
+	private void release(int permits) {
+		synchronized (flushed) {
+			capacity.release(permits);
+			flushed.notifyAll();
+		}
+	}
+
+	/**
+	 * Queues an order whose id has already been assigned, using a slot taken by {@link #reserve}.
+	 */
+	public void enqueue(UserOrder order) {
+		queue.add(new PendingOrder(order));
+	}
+
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * Waits until every reserved order has been written or released.
+	 *
+	 * @return false if orders were still pending when the timeout ran out
+	 */
+	public boolean awaitFlushed(long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		synchronized (flushed) {
+			while (capacity.availablePermits() < queueCapacity) {
+				long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				if (remainingMillis <= 0) {
+					return false;
+				}
+				flushed.wait(remainingMillis);
+			}
+		}
+		return true;
+	}
+
+	private synchronized void start() {
+		if (thread == null) {
+			thread = new Thread(this::run, "order-write-behind");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	private void run() {
+		List<PendingOrder> batch = new ArrayList<>(batchSize);
+		// Keep going after shutdown until every reserved slot has been written or released
+		while (!stopped && (accepting || capacity.availablePermits() < queueCapacity)) {
+			try {
+				PendingOrder first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				int taken = batch.size();
+				write(batch, true);
+				release(taken);
+			} catch (InterruptedException e) {
+				// shutdown() gave up waiting and writes what this thread still holds itself
+				leftOver.addAll(batch);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Writes the batch, removing each order from it once it is stored or dead-lettered.
+	 * With {@code retry}, transient failures are retried until they clear; otherwise
+	 * every failure is final.
+	 */
+	private void write(List<PendingOrder> batch, boolean retry) throws InterruptedException {
+		try {
+			attempt(() -> save(batch), retry);
+			batch.clear();
+			return;
+		} catch (RuntimeException e) {
+			// One bad order must not take the rest of the batch with it
+			logger.warn(LoggerMessage.ORDER_BATCH_WRITE_FAILED + batch.size(), e);
+		}
+		for (Iterator<PendingOrder> orders = batch.iterator(); orders.hasNext(); ) {
+			PendingOrder order = orders.next();
+			try {
+				attempt(() -> save(Collections.singletonList(order)), retry);
+			} catch (RuntimeException e) {
+				deadLetter(order, e, retry);
+			}
+			orders.remove();
+		}
+	}
+
+	private void deadLetter(PendingOrder order, RuntimeException cause, boolean retry) throws InterruptedException {
+		FailedOrder failed = order.toFailedOrder(NestedExceptionUtils.getMostSpecificCause(cause).toString());
+		try {
+			attempt(() -> transactionTemplate.executeWithoutResult(status -> entityManager.merge(failed)), retry);
+			logger.error(LoggerMessage.ORDER_DEAD_LETTERED + order.id, cause);
+		} catch (RuntimeException e) {
+			logger.error(LoggerMessage.ORDER_WRITE_FAILED + order.id, cause);
+		}
+	}
+
+	private void attempt(Runnable write, boolean retry) throws InterruptedException {
+		for (long backoffMillis = flushIntervalMillis; ; backoffMillis = Math.min(backoffMillis * 2, maxRetryBackoffMillis)) {
+			try {
+				write.run();
+				return;
+			} catch (RuntimeException e) {
+				if (!retry || !isTransient(e)) {
+					throw e;
+				}
+				if (stopped) {
+					throw new InterruptedException();
+				}
+				logger.warn(LoggerMessage.ORDER_WRITE_RETRY + backoffMillis + " ms: " + e);
+				Thread.sleep(backoffMillis);
+			}
+		}
+	}
+
+	// Lost connections, lock timeouts and deadlocks clear up on their own; constraint violations do not
+	private static boolean isTransient(RuntimeException e) {
+		return e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+				|| e instanceof DataAccessResourceFailureException || e instanceof CannotCreateTransactionException;
+	}
+
+	private void save(List<PendingOrder> batch) {
+		transactionTemplate.executeWithoutResult(status -> {
+			Session session = entityManager.unwrap(Session.class);
+			for (PendingOrder pending : batch) {
+				session.save(pending.toOrder(session));
+			}
+		});
+	}
+
+	@PreDestroy
+	public void shutdown() throws InterruptedException {
+		accepting = false;
+		Thread writer;
+		synchronized (this) {
+			writer = thread;
+		}
+		if (writer == null) {
+			return;
+		}
+		writer.join(shutdownTimeoutMillis);
+		if (!writer.isAlive()) {
+			return;
+		}
+		// Stop the thread, possibly mid-retry, and make one last attempt at everything it had not written
+		stopped = true;
+		writer.interrupt();
+		writer.join();
+		List<PendingOrder> remaining = new ArrayList<>(leftOver);
+		queue.drainTo(remaining);
+		logger.error(LoggerMessage.ORDER_QUEUE_NOT_DRAINED + remaining.size());
+		for (int from = 0; from < remaining.size(); from += batchSize) {
+			List<PendingOrder> batch = new ArrayList<>(remaining.subList(from, Math.min(from + batchSize, remaining.size())));
+			int taken = batch.size();
+			write(batch, false);
+			release(taken);
+		}
+	}
+
+	/**
+	 * What the writer needs to insert an order, without holding on to entities
+	 * from the request's persistence context.
+	 */
+	private static final class PendingOrder {
+		private final Long id;
+		private final Long userId;
+		private final List<Long> itemIds;
+		private final BigDecimal total;
+
+		private PendingOrder(UserOrder order) {
+			this.id = order.getId();
+			this.userId = order.getUser().getId();
+			this.itemIds = order.getItems().stream().map(Item::getId).collect(Collectors.toList());
+			this.total = order.getTotal();
+		}
+
+		private FailedOrder toFailedOrder(String reason) {
+			return new FailedOrder(id, userId, new ArrayList<>(itemIds), total, reason);
+		}
+
+		private UserOrder toOrder(Session session) {
+			UserOrder order = new UserOrder();
+			order.setId(id);
+			order.setUser(session.load(User.class, userId));
+			order.setItems(itemIds.stream().map(itemId -> session.load(Item.class, itemId)).collect(Collectors.toList()));
+			order.setTotal(total);
+			return order;
+		}
+	}
+}
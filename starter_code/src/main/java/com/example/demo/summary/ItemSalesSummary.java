@@ -0,0 +1,28 @@
+package com.example.demo.summary;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * How many units of an item have been ordered, counting an item once per order line.
+ */
+public final class ItemSalesSummary {
+
+	@JsonProperty
+	private final long itemId;
+
+	@JsonProperty
+	private final long unitsSold;
+
+	ItemSalesSummary(long itemId, long unitsSold) {
+		this.itemId = itemId;
+		this.unitsSold = unitsSold;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public long getUnitsSold() {
+		return unitsSold;
+	}
+}
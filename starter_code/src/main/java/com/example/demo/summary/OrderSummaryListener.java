@@ -0,0 +1,26 @@
+package com.example.demo.summary;
+
+import javax.persistence.PostPersist;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+
+import com.example.demo.model.persistence.UserOrder;
+
+/**
+ * JPA entity listener that reports every inserted order to the
+ * {@link OrderSummaryStore}, whichever path saved it. Like the item search
+ * listener, the store is injected lazily because Hibernate builds the listener
+ * while the EntityManagerFactory is still being created.
+ */
+public class OrderSummaryListener {
+
+	@Autowired
+	@Lazy
+	private OrderSummaryStore orderSummaryStore;
+
+	@PostPersist
+	public void orderSaved(UserOrder order) {
+		orderSummaryStore.recordInserted(order);
+	}
+}
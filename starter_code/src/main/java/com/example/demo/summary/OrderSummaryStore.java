@@ -0,0 +1,172 @@
+package com.example.demo.summary;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.constants.LoggerMessage;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+
+/**
+ * In-memory read model of order analytics: order count and lifetime spend per
+ * user, and units sold per item, each answered with one map lookup. It is built
+ * from the database once the application is ready and kept up to date by
+ * {@link OrderSummaryListener}, which hands every inserted order over once its
+ * transaction commits.
+ * <p>
+ * A transaction that has inserted orders holds the read lock from its first
+ * insert until it completes, and {@link #rebuild} holds the write lock while it
+ * queries. An order is therefore either committed and applied before a rebuild
+ * reads the database, or committed and applied to the new maps after it. The
+ * rebuild takes the write lock only once its own transaction holds a connection:
+ * submits waiting for the lock already hold theirs, so taking the lock first could
+ * leave the rebuild waiting for a connection that none of them can give back.
+ */
+@Component
+public class OrderSummaryStore {
+
+	private static Logger logger = LoggerFactory.getLogger(OrderSummaryStore.class);
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private volatile Map<Long, UserOrderSummary> users = new ConcurrentHashMap<>();
+	private volatile Map<Long, LongAdder> itemSales = new ConcurrentHashMap<>();
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * Replaces the summaries with values recomputed from every stored order.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void rebuild() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		// A read-only transaction binds its connection when it begins
+		transaction.setReadOnly(true);
+		transaction.executeWithoutResult(status -> {
+			lock.writeLock().lock();
+			try {
+				Map<Long, UserOrderSummary> rebuiltUsers = new ConcurrentHashMap<>();
+				Map<Long, LongAdder> rebuiltItemSales = new ConcurrentHashMap<>();
+				for (Object[] row : orderRepository.summarizeByUser()) {
+					rebuiltUsers.put((Long) row[0], new UserOrderSummary((Long) row[1], orZero((BigDecimal) row[2])));
+				}
+				for (Object[] row : orderRepository.countItemSales()) {
+					LongAdder units = new LongAdder();
+					units.add((Long) row[1]);
+					rebuiltItemSales.put((Long) row[0], units);
+				}
+				users = rebuiltUsers;
+				itemSales = rebuiltItemSales;
+			} finally {
+				lock.writeLock().unlock();
+			}
+		});
+		logger.info(LoggerMessage.ORDER_SUMMARY_REBUILT + users.size() + " users, " + itemSales.size() + " items");
+	}
+
+	public UserOrderSummary getUserSummary(long userId) {
+		return users.getOrDefault(userId, UserOrderSummary.EMPTY);
+	}
+
+	public ItemSalesSummary getItemSales(long itemId) {
+		LongAdder units = itemSales.get(itemId);
+		return new ItemSalesSummary(itemId, units == null ? 0 : units.sum());
+	}
+
+	/**
+	 * Counts a newly inserted order once the surrounding transaction commits, or
+	 * immediately when there is none.
+	 */
+	void recordInserted(UserOrder order) {
+		OrderDelta delta = new OrderDelta(order);
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			lock.readLock().lock();
+			try {
+				apply(delta);
+			} finally {
+				lock.readLock().unlock();
+			}
+			return;
+		}
+		PendingOrders pending = (PendingOrders) TransactionSynchronizationManager.getResource(this);
+		if (pending == null) {
+			lock.readLock().lock();
+			pending = new PendingOrders();
+			TransactionSynchronizationManager.bindResource(this, pending);
+			TransactionSynchronizationManager.registerSynchronization(pending);
+		}
+		pending.deltas.add(delta);
+	}
+
+	private void apply(OrderDelta delta) {
+		users.merge(delta.userId, new UserOrderSummary(1, delta.total), UserOrderSummary::plus);
+		Map<Long, LongAdder> sales = itemSales;
+		for (Long itemId : delta.itemIds) {
+			sales.computeIfAbsent(itemId, id -> new LongAdder()).increment();
+		}
+	}
+
+	private static BigDecimal orZero(BigDecimal value) {
+		return value == null ? BigDecimal.ZERO : value;
+	}
+
+	/**
+	 * Orders inserted by one transaction, applied after it commits. The read lock
+	 * taken for the first of them is released once the transaction completes.
+	 */
+	private final class PendingOrders implements TransactionSynchronization {
+		private final List<OrderDelta> deltas = new ArrayList<>();
+
+		@Override
+		public void afterCommit() {
+			deltas.forEach(OrderSummaryStore.this::apply);
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(OrderSummaryStore.this);
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * What an order adds to the summaries, copied so no entity outlives its session.
+	 */
+	private static final class OrderDelta {
+		private final long userId;
+		private final BigDecimal total;
+		private final List<Long> itemIds;
+
+		private OrderDelta(UserOrder order) {
+			this.userId = order.getUser().getId();
+			this.total = orZero(order.getTotal());
+			this.itemIds = new ArrayList<>();
+			if (order.getItems() != null) {
+				for (Item item : order.getItems()) {
+					itemIds.add(item.getId());
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package com.example.demo.summary;
+
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Number of orders a user has placed and the sum of their totals. Immutable, so
+ * a summary can be replaced atomically in a concurrent map.
+ */
+public final class UserOrderSummary {
+
+	static final UserOrderSummary EMPTY = new UserOrderSummary(0, BigDecimal.ZERO);
+
+	@JsonProperty
+	private final long orderCount;
+
+	@JsonProperty
+	private final BigDecimal totalSpend;
+
+	UserOrderSummary(long orderCount, BigDecimal totalSpend) {
+		this.orderCount = orderCount;
+		this.totalSpend = totalSpend;
+	}
+
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	public BigDecimal getTotalSpend() {
+		return totalSpend;
+	}
+
+	UserOrderSummary plus(UserOrderSummary other) {
+		return new UserOrderSummary(orderCount + other.orderCount, totalSpend.add(other.totalSpend));
+	}
+}
@@ -1,14 +1,29 @@
 package com.example.demo;
 
 import com.example.demo.controllers.CartController;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartLineChange;
 import com.example.demo.model.requests.CreateUserRequest;
 import com.example.demo.model.requests.LoginRequest;
+import com.example.demo.model.requests.ModifyCartBatchRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.security.VerifiedTokenCache;
+import com.example.demo.services.CartService;
+import com.example.demo.services.ItemImportResult;
+import com.example.demo.services.ItemImportService;
+import com.example.demo.services.UserLookupService;
+import com.example.demo.summary.OrderSummaryStore;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -17,20 +32,51 @@ import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
-
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 @AutoConfigureMockMvc
+//The HTTP catalog import is off by default; SareetaApplicationTests covers that
+@TestPropertySource(properties = "items.import.http-enabled=true")
 public class ControllerTest {
 
     @InjectMocks
@@ -60,6 +106,33 @@ public class ControllerTest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository persistentUserRepository;
+
+    @Autowired
+    private ItemRepository persistentItemRepository;
+
+    @Autowired
+    private BCryptPasswordEncoder bCryptPasswordEncoder;
+
+    @Autowired
+    private ItemImportService itemImportService;
+
+    @Autowired
+    private OrderSummaryStore orderSummaryStore;
+
+    @Autowired
+    private CartService cartService;
+
     private CreateUserRequest userRequest;
 
     @Test
@@ -70,9 +143,7 @@ public class ControllerTest {
         userRequest.setPassword("Password1");
         userRequest.setConfirmPassword("Password1");
 
-        mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        performCreateUser(userRequest)
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").exists()).andReturn();
     }
 
@@ -84,15 +155,11 @@ public class ControllerTest {
         userRequest.setPassword("Password1");
         userRequest.setConfirmPassword("Password1");
 
-        mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        performCreateUser(userRequest)
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").exists()).andReturn();
 
         //Second attempt at same username
-        mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        performCreateUser(userRequest)
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.message").value("This username already exists")).andReturn();
     }
 
@@ -104,9 +171,7 @@ public class ControllerTest {
         userRequest.setPassword("Passwo");
         userRequest.setConfirmPassword("Passwo");
 
-        mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        performCreateUser(userRequest)
                 .andExpect(status().isBadRequest()).andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Password length must be more that 8 characters")).andReturn();
 
     }
@@ -119,9 +184,7 @@ public class ControllerTest {
         userRequest.setPassword("Password1");
         userRequest.setConfirmPassword("Password2");
 
-        mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        performCreateUser(userRequest)
                 .andExpect(status().isBadRequest()).andExpect(MockMvcResultMatchers.jsonPath("$.message").value("The entered passwords do not match")).andReturn();
 
     }
@@ -134,9 +197,7 @@ public class ControllerTest {
         userRequest.setPassword("Password1");
         userRequest.setConfirmPassword("Password1");
 
-        MvcResult mvcResult = mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        MvcResult mvcResult = performCreateUser(userRequest)
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").exists()).andReturn();
 
         //Map response data to User object
@@ -147,9 +208,7 @@ public class ControllerTest {
         BeanUtils.copyProperties(userRequest, loginRequest);
 
         //Login newly created user
-        MvcResult response = mockMvc.perform(
-                MockMvcRequestBuilders.post("/login").content(objectMapper.writeValueAsString(loginRequest))
-                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+        MvcResult response = performLogin(objectMapper.writeValueAsString(loginRequest))
                 .andExpect(status().isOk()).andReturn();
 
         //Retrieve Bearer token
@@ -239,6 +298,290 @@ public class ControllerTest {
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("0.0")).andReturn();
     }
 
+    @Test
+    public void testRepeatedAddToCartKeepsOneLinePerItem() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
+
+        cartRequest.setUsername("Julian103");
+        cartRequest.setItemId(2L);
+        cartRequest.setQuantity(2);
+
+        String token = getBearerToken("Julian103");
+
+        //Add to cart twice
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("3.98")).andReturn();
+
+        cartRequest.setQuantity(3);
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("9.95"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(5)).andReturn();
+
+        //Remove more than is in the cart
+        cartRequest.setQuantity(7);
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/removeFromCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("0.0"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(0)).andReturn();
+    }
+
+    @Test
+    public void testRemoveAbsentItemKeepsTotal() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
+
+        cartRequest.setUsername("Julian104");
+        cartRequest.setItemId(1L);
+        cartRequest.setQuantity(1);
+
+        String token = getBearerToken("Julian104");
+
+        //Add to cart
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("2.99")).andReturn();
+
+        //Remove an item that was never added
+        cartRequest.setItemId(2L);
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/removeFromCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("2.99"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(1)).andReturn();
+    }
+
+    @Test
+    public void testAddToCartRejectsOversizedQuantities() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
+
+        cartRequest.setUsername("Julian108");
+        cartRequest.setItemId(1L);
+        cartRequest.setQuantity(Integer.MAX_VALUE);
+
+        String token = getBearerToken("Julian108");
+
+        //More than one line may hold is refused as a whole
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("The quantity of an item in the cart must not exceed 1000")).andReturn();
+
+        cartRequest.setQuantity(CartLine.MAX_QUANTITY);
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.items.length()").value(CartLine.MAX_QUANTITY)).andReturn();
+
+        //Adding to a full line must not wrap around, whether the sum overflows an int or not
+        for (int quantity : new int[] {1, Integer.MAX_VALUE}) {
+            cartRequest.setQuantity(quantity);
+            mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isBadRequest()).andReturn();
+        }
+
+        //The batch endpoint reports oversized changes and refuses a batch that overfills a line
+        ModifyCartBatchRequest batchRequest = new ModifyCartBatchRequest();
+        batchRequest.setUsername("Julian108");
+        batchRequest.setChanges(Arrays.asList(new CartLineChange(2L, Integer.MAX_VALUE), new CartLineChange(2L, 1)));
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/batch").header("Authorization", token).content(objectMapper.writeValueAsString(batchRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0]").value("changes[0]: The quantity of an item in the cart must not exceed 1000"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.cart.items.length()").value(CartLine.MAX_QUANTITY + 1)).andReturn();
+
+        batchRequest.setChanges(Arrays.asList(new CartLineChange(2L, 600), new CartLineChange(2L, 600)));
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/batch").header("Authorization", token).content(objectMapper.writeValueAsString(batchRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest()).andReturn();
+
+        //Nothing of the refused requests reached the cart
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/cart/Julian108").header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.itemCount").value(CartLine.MAX_QUANTITY + 1)).andReturn();
+    }
+
+    @Test
+    public void testBatchModifyCart() throws Exception{
+        ModifyCartBatchRequest batchRequest = new ModifyCartBatchRequest();
+
+        batchRequest.setUsername("Julian105");
+        batchRequest.setChanges(Arrays.asList(
+                new CartLineChange(1L, 3),
+                new CartLineChange(2L, 2),
+                new CartLineChange(999L, 1),
+                new CartLineChange(1L, 0),
+                new CartLineChange(1L, -1)));
+
+        String token = getBearerToken("Julian105");
+
+        //Valid changes are applied, invalid ones are reported by index
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/batch").header("Authorization", token).content(objectMapper.writeValueAsString(batchRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.cart.total").value("9.96"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.cart.items.length()").value(4))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0]").value("changes[2]: Item not found - 999"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[1]").value("changes[3]: Quantity change must not be zero")).andReturn();
+
+        //An empty batch is rejected
+        batchRequest.setChanges(Collections.emptyList());
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/batch").header("Authorization", token).content(objectMapper.writeValueAsString(batchRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest()).andReturn();
+    }
+
+    @Test
+    public void testCompactCartWithEtag() throws Exception{
+        String token = getBearerToken("Julian107");
+        String body = "{\"username\":\"Julian107\",\"itemId\":1,\"quantity\":3}";
+
+        //Units of the same item are grouped into one line
+        MvcResult added = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart?view=compact").header("Authorization", token).content(body)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.lines.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.lines[0].quantity").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.itemCount").value(3))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(8.97))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.user").doesNotExist()).andReturn();
+        String etag = added.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/cart/Julian107").header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.header().string("ETag", etag))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.lines[0].name").value("Round Widget")).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/cart/Julian107").header("Authorization", token).header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified()).andReturn();
+
+        //Any change to the cart changes its ETag
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/removeFromCart").header("Authorization", token).content(body)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/cart/Julian107").header("Authorization", token).header("If-None-Match", etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.lines.length()").value(0)).andReturn();
+    }
+
+    @Test
+    public void testCompactCartKeepsLinePricesAfterPriceChange() throws Exception{
+        String token = getBearerToken("Julian109");
+        Item item = new Item();
+        item.setName("Repriced Widget");
+        item.setPrice(new BigDecimal("5.00"));
+        item.setDescription("A widget whose price changes");
+        item = persistentItemRepository.save(item);
+        String body = "{\"username\":\"Julian109\",\"itemId\":" + item.getId() + ",\"quantity\":2}";
+
+        String etag = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart?view=compact").header("Authorization", token).content(body)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+        item.setPrice(new BigDecimal("6.00"));
+        persistentItemRepository.save(item);
+
+        //The line keeps the price its total was computed with, so the unchanged ETag still fits the body
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/cart/Julian109").header("Authorization", token)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.header().string("ETag", etag))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.lines[0].price").value(5.0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.lines[0].lineTotal").value(10.0))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(10.0)).andReturn();
+    }
+
+    @Test
+    public void testConcurrentAddToCartLosesNoUpdates() throws Exception{
+        int writers = 64;
+        int addsPerWriter = 5;
+        String token = getBearerToken("Julian106");
+        String body = "{\"username\":\"Julian106\",\"itemId\":2,\"quantity\":1}";
+
+        //Every writer adds to the same cart at the same time
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                int applied = 0;
+                for (int j = 0; j < addsPerWriter; j++) {
+                    int status = mockMvc.perform(
+                            MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(body)
+                                    .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                            .andReturn().getResponse().getStatus();
+                    assertTrue(status == 200 || status == 409);
+                    applied += status == 200 ? 1 : 0;
+                }
+                return applied;
+            }));
+        }
+        start.countDown();
+        int applied = 0;
+        for (Future<Integer> result : results) {
+            applied += result.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+        assertTrue(applied > 0);
+
+        //Every acknowledged add is in the cart and in its total
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            Cart cart = entityManager.find(User.class, persistentUserRepository.findIdByUsername("Julian106")).getCart();
+            int quantity = cart.getLines().stream().mapToInt(CartLine::getQuantity).sum();
+            assertEquals(applied, quantity);
+            assertEquals(0, new BigDecimal("1.99").multiply(BigDecimal.valueOf(applied)).compareTo(cart.getTotal()));
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    public void testCartUpdateLeavesCallerEntitiesManaged() throws Exception{
+        getBearerToken("Julian800");
+
+        //Load the user and item through a thread-bound entity manager, like open-in-view does for a request
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            User user = entityManager.createQuery("select u from User u where u.username = :username", User.class)
+                    .setParameter("username", "Julian800").getSingleResult();
+            Item item = entityManager.find(Item.class, 1L);
+
+            Cart cart = cartService.applyChanges(user.getCart().getId(),
+                    Collections.singletonList(new CartLineChange(1L, 2)), Collections.singletonMap(1L, item));
+
+            assertEquals(2, cart.getItems().size());
+            assertTrue(entityManager.contains(user));
+            assertTrue(entityManager.contains(item));
+            assertTrue(TransactionSynchronizationManager.hasResource(entityManagerFactory));
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
     @Test
     public void testSubmitOrderEmptyCart() throws Exception{
         mockMvc.perform(
@@ -278,33 +621,644 @@ public class ControllerTest {
                 .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("3.98")).andReturn();
     }
 
-    private String getBearerToken(String username) throws Exception {
-        CreateUserRequest userRequest = new CreateUserRequest();
+    @Test
+    public void testIdempotentSubmitCreatesOneOrder() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
 
-        userRequest.setUsername(username);
-        userRequest.setPassword("Password1");
-        userRequest.setConfirmPassword("Password1");
+        cartRequest.setUsername("Julian203");
+        cartRequest.setItemId(1L);
+        cartRequest.setQuantity(2);
+
+        String token = getBearerToken("Julian203");
 
-        MvcResult mvcResult = mockMvc.perform(
-                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
                         .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
-                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").exists()).andReturn();
+                .andExpect(status().isOk()).andReturn();
 
-        //Map response data to User object
-        String content = mvcResult.getResponse().getContentAsString();
-        User user = objectMapper.readValue(content, User.class);
+        //The same key fired in parallel submits once, every caller sees the same order
+        int requests = 100;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> results = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                return mockMvc.perform(
+                        MockMvcRequestBuilders.post("/api/order/submit/Julian203").header("Authorization", token)
+                                .header("Idempotency-Key", "checkout-1")
+                                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                        .andReturn();
+            }));
+        }
+        start.countDown();
+        Set<Integer> orderIds = new HashSet<>();
+        int replays = 0;
+        for (Future<MvcResult> result : results) {
+            MvcResult mvcResult = result.get(2, TimeUnit.MINUTES);
+            assertEquals(200, mvcResult.getResponse().getStatus());
+            orderIds.add(JsonPath.read(mvcResult.getResponse().getContentAsString(), "$.id"));
+            replays += "true".equals(mvcResult.getResponse().getHeader("Idempotent-Replayed")) ? 1 : 0;
+        }
+        pool.shutdown();
+        assertEquals(1, orderIds.size());
+        assertEquals(requests - 1, replays);
+
+        //Exactly one order exists and the cart was emptied with it
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/order/history/Julian203").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].total").value("5.98")).andReturn();
 
-        LoginRequest loginRequest = new LoginRequest();
-        BeanUtils.copyProperties(userRequest, loginRequest);
+        //A new key is a new submission, which finds the cart empty
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/order/submit/Julian203").header("Authorization", token)
+                        .header("Idempotency-Key", "checkout-2")
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound()).andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Cannot submit order because the users cart is empty")).andReturn();
+    }
 
-        //Login newly created user
-        MvcResult response = mockMvc.perform(
-                MockMvcRequestBuilders.post("/login").content(objectMapper.writeValueAsString(loginRequest))
+    @Test
+    public void testOrderSummariesMatchRecomputedValues() throws Exception{
+        int buyers = 8;
+        int ordersPerBuyer = 5;
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            tokens.add(getBearerToken("Julian70" + i));
+        }
+
+        //Every buyer submits orders at the same time while the summaries are rebuilt
+        ExecutorService pool = Executors.newFixedThreadPool(buyers + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            String username = "Julian70" + i;
+            String token = tokens.get(i);
+            int quantity = i + 1;
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int j = 0; j < ordersPerBuyer; j++) {
+                    String body = "{\"username\":\"" + username + "\",\"itemId\":" + (j % 2 + 1) + ",\"quantity\":" + quantity + "}";
+                    mockMvc.perform(
+                            MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(body)
+                                    .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                            .andExpect(status().isOk());
+                    mockMvc.perform(
+                            MockMvcRequestBuilders.post("/api/order/submit/" + username).header("Authorization", token)
+                                    .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                            .andExpect(status().isOk());
+                }
+                return null;
+            }));
+        }
+        results.add(pool.submit(() -> {
+            start.await();
+            for (int j = 0; j < 3; j++) {
+                orderSummaryStore.rebuild();
+            }
+            return null;
+        }));
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get(2, TimeUnit.MINUTES);
+        }
+        pool.shutdown();
+
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            for (int i = 0; i < buyers; i++) {
+                Object[] expected = entityManager.createQuery(
+                        "select count(o), sum(o.total) from UserOrder o where o.user.username = :username", Object[].class)
+                        .setParameter("username", "Julian70" + i).getSingleResult();
+                String summary = mockMvc.perform(
+                        MockMvcRequestBuilders.get("/api/order/summary/user/Julian70" + i).header("Authorization", tokens.get(i))
+                                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+                assertEquals(ordersPerBuyer, ((Long) expected[0]).intValue());
+                assertEquals(ordersPerBuyer, JsonPath.<Integer>read(summary, "$.orderCount").intValue());
+                assertEquals(0, ((BigDecimal) expected[1]).compareTo(new BigDecimal(JsonPath.read(summary, "$.totalSpend").toString())));
+            }
+            for (long itemId = 1; itemId <= 2; itemId++) {
+                Long expected = entityManager.createQuery(
+                        "select count(i) from UserOrder o join o.items i where i.id = :id", Long.class)
+                        .setParameter("id", itemId).getSingleResult();
+                mockMvc.perform(
+                        MockMvcRequestBuilders.get("/api/order/summary/item/" + itemId).header("Authorization", tokens.get(0))
+                                .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.unitsSold").value(expected.intValue()));
+            }
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Test
+    public void testCachedTokenIsReused() throws Exception{
+        String token = getBearerToken("Julian300");
+
+        long hits = verifiedTokenCache.getHitCount();
+
+        //First request verifies the signature, the second is served from the cache
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(
+                    MockMvcRequestBuilders.get("/api/user/Julian300").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").value("Julian300")).andReturn();
+        }
+
+        assertTrue(verifiedTokenCache.getHitCount() > hits);
+    }
+
+    @Test
+    public void testItemCatalogIsCached() throws Exception{
+        String token = getBearerToken("Julian400");
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Round Widget")).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/1").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Round Widget")).andReturn();
+
+        assertNotNull(cacheManager.getCache(ItemRepository.CATALOG_CACHE).get(SimpleKey.EMPTY));
+        assertNotNull(cacheManager.getCache(ItemRepository.ITEM_CACHE).get(1L));
+    }
+
+    @Test
+    public void testItemPageAndSeek() throws Exception{
+        String token = getBearerToken("Julian401");
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/page?page=0&size=1").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].id").value(1L)).andReturn();
+
+        //Seek past the first item
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/seek?after=0&size=1").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.header().string("X-Next-Cursor", "1"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(1L)).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/seek?after=1&size=1").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(2L)).andReturn();
+    }
+
+    @Test
+    public void testItemStream() throws Exception{
+        String token = getBearerToken("Julian402");
+
+        MvcResult result = mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/stream").header("Authorization", token))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertTrue(lines.length >= 2);
+        assertTrue(lines[0].contains("Round Widget"));
+    }
+
+    @Test
+    public void testItemSearch() throws Exception{
+        String token = getBearerToken("Julian403");
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/search?q=squ").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[?(@.name == 'Round Widget')]").isEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Square Widget")).andReturn();
+
+        //Both widgets match, the exact name ranks first
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/search?q=ROUND widget").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Round Widget")).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/search?q=widget&limit=1").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1)).andReturn();
+    }
+
+    @Test
+    public void testItemImport() throws Exception{
+        String token = getBearerToken("Julian404");
+        String csv = "id,name,price,description\n"
+                + "99,Imported Gadget,4.50,A gadget from the import\n"
+                + ",\"Imported Gizmo, Deluxe\",7,\"Spans\ntwo lines\"\n"
+                + ",Broken Gadget,not-a-price,Bad row\n";
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/item/import").header("Authorization", token)
+                        .content(csv).contentType("text/csv").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rejected").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errors[0]").value("line 5: price is not a number: not-a-price")).andReturn();
+
+        String ndjson = "{\"name\":\"Imported Doohickey\",\"price\":1.25,\"description\":\"From NDJSON\"}\n"
+                + "{\"name\":\"Imported Whatsit\"\n"
+                + "{\"name\":\"\",\"price\":1,\"description\":\"No name\"}\n";
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/item/import").header("Authorization", token)
+                        .content(ndjson).contentType("application/x-ndjson").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.imported").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rejected").value(2)).andReturn();
+
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/search?q=imported gizmo").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value("Imported Gizmo, Deluxe"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].description").value("Spans\ntwo lines")).andReturn();
+
+        //A CSV without the required columns is refused as a whole
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/item/import").header("Authorization", token)
+                        .content("name,cost\nThing,1\n").contentType("text/csv").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest()).andReturn();
+    }
+
+    @Test
+    public void testItemImportKeepsPersistenceContextBounded() throws Exception{
+        StringBuilder csv = new StringBuilder("name,price,description\n");
+        for (int i = 0; i < 2500; i++) {
+            csv.append("Bulk Item ").append(i).append(",1.00,Bulk\n");
+        }
+
+        //Bind an entity manager to the thread the way open-in-view does for the REST import
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        Session session = entityManager.unwrap(Session.class);
+        int[] mostManaged = new int[1];
+        InputStream input = new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                mostManaged[0] = Math.max(mostManaged[0], session.getStatistics().getEntityCount());
+                return super.read(b, off, len);
+            }
+        };
+        try {
+            ItemImportResult result = itemImportService.importItems(input, ItemImportService.Format.CSV);
+
+            assertEquals(2500, result.getImported());
+            assertTrue(mostManaged[0] <= 1000);
+            assertEquals(0, session.getStatistics().getEntityCount());
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            entityManager.close();
+        }
+    }
+
+    @Test
+    public void testItemImportQuotesAndRecordLength() throws Exception{
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 70000; i++) {
+            longName.append('x');
+        }
+        String csv = "name,price,description\n"
+                + "12\" Flatbread,9.99,Stray quote\n"
+                + "\"Quoted \"\"Strudel\"\"\",4.50,Doubled quote\n"
+                + longName + ",1.00,Too long\n"
+                + "\"Runaway,1.00,Never closed\n"
+                + longName + "\n"
+                + "Runaway Survivor,3.00,After the runaway\n";
+
+        ItemImportResult result = itemImportService.importItems(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ItemImportService.Format.CSV);
+
+        assertEquals(3, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals("line 4: record is longer than 65536 characters", result.getErrors().get(0));
+        assertEquals("line 5: record is longer than 65536 characters", result.getErrors().get(1));
+        String token = getBearerToken("Julian405");
+        assertSearchFinds(token, "12\" flatbread", "12\" Flatbread");
+        assertSearchFinds(token, "quoted \"strudel", "Quoted \"Strudel\"");
+        assertSearchFinds(token, "runaway survivor", "Runaway Survivor");
+
+        String ndjson = "{\"name\":\"" + longName + "\",\"price\":1.00,\"description\":\"Too long\"}\n"
+                + "{\"name\":\"Overlong Survivor\",\"price\":20.00,\"description\":\"After the long line\"}\n";
+
+        result = itemImportService.importItems(
+                new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), ItemImportService.Format.NDJSON);
+
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejected());
+        assertEquals("line 1: record is longer than 65536 characters", result.getErrors().get(0));
+        assertSearchFinds(token, "overlong survivor", "Overlong Survivor");
+    }
+
+    private void assertSearchFinds(String token, String query, String name) throws Exception {
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/item/search").param("q", query).header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$[0].name").value(name)).andReturn();
+    }
+
+    @Test
+    public void testUserDetailsAreCached() throws Exception{
+        getBearerToken("Julian500");
+
+        assertNotNull(cacheManager.getCache(UserLookupService.USER_DETAILS_CACHE).get("Julian500"));
+        assertNotNull(cacheManager.getCache(UserLookupService.USER_ID_CACHE).get("Julian500"));
+
+        //Lookups by username keep working when served from the id cache
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/user/Julian500").header("Authorization", getBearerToken("Julian501"))
                         .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").value("Julian500")).andReturn();
+    }
+
+    @Test
+    public void testOrderHistoryAvoidsNPlusOne() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
+
+        cartRequest.setUsername("Julian202");
+        cartRequest.setItemId(1L);
+        cartRequest.setQuantity(1);
+
+        String token = getBearerToken("Julian202");
+
+        //Submit several orders, each with both items
+        for (int i = 0; i < 5; i++) {
+            cartRequest.setItemId(1L);
+            mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andReturn();
+            cartRequest.setItemId(2L);
+            mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andReturn();
+            mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/order/submit/Julian202").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andReturn();
+        }
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            //Full history is one query for the orders and their items
+            statistics.clear();
+            mockMvc.perform(
+                    MockMvcRequestBuilders.get("/api/order/history/Julian202").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(5))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$[0].items.length()").value(2)).andReturn();
+            assertTrue(statistics.getPrepareStatementCount() <= 3);
+
+            //Pages are sorted by recency and load items in one batch
+            statistics.clear();
+            MvcResult page = mockMvc.perform(
+                    MockMvcRequestBuilders.get("/api/order/history/Julian202?page=0&size=2").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.totalElements").value(5))
+                    .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].items.length()").value(2)).andReturn();
+            assertTrue(statistics.getPrepareStatementCount() <= 4);
+
+            List<Integer> ids = JsonPath.read(page.getResponse().getContentAsString(), "$.content[*].id");
+            assertTrue(ids.get(0) > ids.get(1));
+
+            //The export streams every order from a single query
+            statistics.clear();
+            MvcResult export = mockMvc.perform(
+                    MockMvcRequestBuilders.get("/api/order/history/Julian202/export").header("Authorization", token))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+            String ndjson = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(export))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            String[] orders = ndjson.split("\n");
+            assertEquals(5, orders.length);
+            assertEquals(2, JsonPath.<Integer>read(orders[0], "$.items.length()").intValue());
+            assertEquals("Julian202", JsonPath.read(orders[0], "$.user.username"));
+            assertTrue(JsonPath.<Integer>read(orders[0], "$.id") > JsonPath.<Integer>read(orders[1], "$.id"));
+            assertTrue(statistics.getPrepareStatementCount() <= 2);
+
+            export = mockMvc.perform(
+                    MockMvcRequestBuilders.get("/api/order/history/Julian202/export?format=csv").header("Authorization", token))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+            String csv = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(export))
+                    .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            String[] lines = csv.split("\n");
+            assertEquals("order_id,order_total,item_id,item_name,item_price", lines[0]);
+            assertEquals(11, lines.length);
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    public void testLoginRejectsOversizedOrMalformedBody() throws Exception{
+        StringBuilder padding = new StringBuilder();
+        while (padding.length() <= 4096) {
+            padding.append("                ");
+        }
+
+        performLogin("{\"username\":\"Julian\",\"password\":\"Password1\"" + padding + "}")
+                .andExpect(status().isUnauthorized()).andReturn();
+
+        performLogin("{\"username\":")
+                .andExpect(status().isUnauthorized()).andReturn();
+    }
+
+    @Test
+    public void testLoginRejectsBadCredentials() throws Exception{
+        getBearerToken("Julian603");
+
+        //Checked off the servlet thread, like a successful login
+        performLogin("{\"username\":\"Julian603\",\"password\":\"WrongPassword1\"}")
+                .andExpect(status().isUnauthorized()).andExpect(MockMvcResultMatchers.header().doesNotExist("Authorization"));
+
+        performLogin("{\"username\":\"NoSuchUser603\",\"password\":\"Password1\"}")
+                .andExpect(status().isUnauthorized()).andExpect(MockMvcResultMatchers.header().doesNotExist("Authorization"));
+
+        performLogin("{\"username\":\"Julian603\",\"password\":\"Password1\"}")
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.header().exists("Refresh-Token"));
+    }
+
+    @Test
+    public void testLoginUpgradesPasswordStrength() throws Exception{
+        //Store a user whose hash was made with a weaker work factor than configured
+        User user = new User();
+        user.setUsername("Julian600");
+        user.setPassword(new BCryptPasswordEncoder(4).encode("Password1"));
+        persistentUserRepository.save(user);
+        assertTrue(bCryptPasswordEncoder.upgradeEncoding(user.getPassword()));
+
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsername("Julian600");
+        loginRequest.setPassword("Password1");
+
+        performLogin(objectMapper.writeValueAsString(loginRequest))
                 .andExpect(status().isOk()).andReturn();
 
-        //Retrieve Bearer token
-        return response.getResponse().getHeaderValue("Authorization").toString();
+        String rehashed = persistentUserRepository.findByUsername("Julian600").getPassword();
+        assertFalse(bCryptPasswordEncoder.upgradeEncoding(rehashed));
+        assertTrue(bCryptPasswordEncoder.matches("Password1", rehashed));
+
+        //The new hash is used for the next login
+        performLogin(objectMapper.writeValueAsString(loginRequest))
+                .andExpect(status().isOk()).andReturn();
+    }
+
+    @Test
+    public void testRefreshAndRevokeTokens() throws Exception{
+        getBearerToken("Julian601");
+        LoginRequest loginRequest = new LoginRequest();
+        loginRequest.setUsername("Julian601");
+        loginRequest.setPassword("Password1");
+
+        MvcResult login = performLogin(objectMapper.writeValueAsString(loginRequest))
+                .andExpect(status().isOk()).andReturn();
+        String refreshToken = login.getResponse().getHeader("Refresh-Token");
+        assertNotNull(refreshToken);
+
+        //A refresh token is not an access token
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/user/Julian601").header("Authorization", "Bearer " + refreshToken))
+                .andExpect(status().isUnauthorized());
+
+        //Each refresh token is redeemed once for a new pair
+        MvcResult refreshed = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/user/token/refresh").header("Refresh-Token", refreshToken))
+                .andExpect(status().isOk()).andReturn();
+        String token = refreshed.getResponse().getHeader("Authorization");
+        String nextRefreshToken = refreshed.getResponse().getHeader("Refresh-Token");
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/user/token/refresh").header("Refresh-Token", refreshToken))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/user/token/refresh"))
+                .andExpect(status().isUnauthorized());
+
+        //Revoking logs out the access token even though it is already in the verified-token cache
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/user/Julian601").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/user/token/revoke").header("Authorization", token)
+                        .header("Refresh-Token", nextRefreshToken))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/user/Julian601").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/user/token/refresh").header("Refresh-Token", nextRefreshToken))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testCatalogReadsArePublicAndCacheable() throws Exception{
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=60, public"));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item/1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item/name/Round Widget"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("Cache-Control", "max-age=60, public"));
+
+        //Errors are not marked cacheable
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item/999999"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.header().doesNotExist("Cache-Control"));
+
+        //Paging, search and the streaming export are not part of the public catalog
+        for (String path : new String[] {"/api/item/page?page=0&size=1", "/api/item/seek?after=0&size=1", "/api/item/search?q=widget", "/api/item/stream"}) {
+            mockMvc.perform(MockMvcRequestBuilders.get(path))
+                    .andExpect(status().isUnauthorized());
+        }
+
+        //Writes to the catalog and everything else still need a token
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/item/import").contentType("text/csv").content("name,price,description\n"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/user/Julian"))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/order/summary/item/1"))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    public void testConditionalGetsAnswerNotModifiedWithoutLoading() throws Exception{
+        String token = getBearerToken("Julian602");
+        Item item = new Item();
+        item.setName("Conditional Widget");
+        item.setPrice(new BigDecimal("3.99"));
+        item.setDescription("A widget that is polled");
+        item = persistentItemRepository.save(item);
+        String itemPath = "/api/item/" + item.getId();
+
+        MvcResult first = mockMvc.perform(MockMvcRequestBuilders.get(itemPath))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("Last-Modified")).andReturn();
+        String itemEtag = first.getResponse().getHeader("ETag");
+        String lastModified = first.getResponse().getHeader("Last-Modified");
+        String catalogEtag = mockMvc.perform(MockMvcRequestBuilders.get("/api/item"))
+                .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+        MvcResult user = mockMvc.perform(MockMvcRequestBuilders.get("/api/user/Julian602").header("Authorization", token))
+                .andExpect(status().isOk()).andReturn();
+        String userEtag = user.getResponse().getHeader("ETag");
+        String userId = JsonPath.read(user.getResponse().getContentAsString(), "$.id").toString();
+        assertNotNull(itemEtag);
+        assertNotNull(userEtag);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            mockMvc.perform(MockMvcRequestBuilders.get(itemPath).header("If-None-Match", itemEtag))
+                    .andExpect(status().isNotModified())
+                    .andExpect(MockMvcResultMatchers.content().string(""));
+            mockMvc.perform(MockMvcRequestBuilders.get(itemPath).header("If-Modified-Since", lastModified))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/item").header("If-None-Match", catalogEtag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/user/Julian602").header("Authorization", token)
+                    .header("If-None-Match", userEtag))
+                    .andExpect(status().isNotModified());
+            mockMvc.perform(MockMvcRequestBuilders.get("/api/user/id/" + userId).header("Authorization", token)
+                    .header("If-None-Match", userEtag))
+                    .andExpect(status().isNotModified());
+            //Only version projections were read, no entity was built
+            assertEquals(0, statistics.getEntityLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+
+        //A change to the item invalidates both its ETag and the catalog's
+        item.setPrice(new BigDecimal("4.49"));
+        persistentItemRepository.save(item);
+        MvcResult changed = mockMvc.perform(MockMvcRequestBuilders.get(itemPath).header("If-None-Match", itemEtag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.price").value(4.49)).andReturn();
+        assertFalse(itemEtag.equals(changed.getResponse().getHeader("ETag")));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item").header("If-None-Match", catalogEtag))
+                .andExpect(status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/item/999999").header("If-None-Match", itemEtag))
+                .andExpect(status().isNotFound());
+    }
+
+    //Sign up is served asynchronously, so dispatch the async result before asserting on it
+    private ResultActions performCreateUser(CreateUserRequest userRequest) throws Exception {
+        return TestUsers.performCreateUser(mockMvc, objectMapper, userRequest);
+    }
+
+    private ResultActions performLogin(String body) throws Exception {
+        return TestUsers.performLogin(mockMvc, body);
+    }
+
+    private String getBearerToken(String username) throws Exception {
+        return TestUsers.getBearerToken(mockMvc, objectMapper, username);
     }
 
 }
@@ -2,15 +2,42 @@ package com.example.demo;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@AutoConfigureMockMvc
+//A database of its own, so the user signed up here does not shift ids in ControllerTest
+@TestPropertySource(properties = "spring.datasource.url=jdbc:h2:mem:defaults;DB_CLOSE_DELAY=-1")
 public class SareetaApplicationTests {
 
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Test
 	public void contextLoads() {
 	}
 
+	@Test
+	public void httpCatalogImportIsOffByDefault() throws Exception {
+		String token = TestUsers.getBearerToken(mockMvc, objectMapper, "Julian900");
+
+		mockMvc.perform(MockMvcRequestBuilders.post("/api/item/import").header("Authorization", token)
+				.contentType("text/csv").content("name,price,description\nSneaky Item,1.00,Should not be stored\n"))
+				.andExpect(status().isNotFound());
+	}
+
 }
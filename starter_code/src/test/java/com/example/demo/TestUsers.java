@@ -0,0 +1,64 @@
+package com.example.demo;
+
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.LoginRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.BeanUtils;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//Signs users up and logs them in through the REST API, for the test classes that need a bearer token
+final class TestUsers {
+
+    static final String PASSWORD = "Password1";
+
+    private TestUsers() {
+    }
+
+    static ResultActions performCreateUser(MockMvc mockMvc, ObjectMapper objectMapper, CreateUserRequest userRequest) throws Exception {
+        //Sign up is served asynchronously, so dispatch the async result before asserting on it
+        MvcResult mvcResult = mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/user/create").content(objectMapper.writeValueAsString(userRequest))
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult));
+    }
+
+    static ResultActions performLogin(MockMvc mockMvc, String body) throws Exception {
+        //Login is served asynchronously as well
+        MvcResult mvcResult = mockMvc.perform(
+                MockMvcRequestBuilders.post("/login").content(body)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted()).andReturn();
+
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult));
+    }
+
+    static String getBearerToken(MockMvc mockMvc, ObjectMapper objectMapper, String username) throws Exception {
+        CreateUserRequest userRequest = new CreateUserRequest();
+
+        userRequest.setUsername(username);
+        userRequest.setPassword(PASSWORD);
+        userRequest.setConfirmPassword(PASSWORD);
+
+        performCreateUser(mockMvc, objectMapper, userRequest)
+                .andExpect(status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.username").exists());
+
+        LoginRequest loginRequest = new LoginRequest();
+        BeanUtils.copyProperties(userRequest, loginRequest);
+
+        //Login newly created user
+        MvcResult response = performLogin(mockMvc, objectMapper.writeValueAsString(loginRequest))
+                .andExpect(status().isOk()).andReturn();
+
+        //Retrieve Bearer token
+        return response.getResponse().getHeaderValue("Authorization").toString();
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo;
+
+import com.example.demo.model.persistence.FailedOrder;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.FailedOrderRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.services.WriteBehindOrderWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+//The ingestion mode is fixed at startup, so batched submits get a context, and a database, of their own
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+//A short lock timeout lets the tests hold a row lock to simulate a database that is briefly unavailable
+@TestPropertySource(properties = {"orders.ingestion.mode=batched", "spring.datasource.url=jdbc:h2:mem:writebehind;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=100"})
+public class WriteBehindOrderTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WriteBehindOrderWriter writer;
+
+    @Autowired
+    private UserRepository persistentUserRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FailedOrderRepository failedOrderRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    public void testWriteBehindSubmitAcknowledgesOrderId() throws Exception{
+        ModifyCartRequest cartRequest = new ModifyCartRequest();
+
+        cartRequest.setUsername("Julian204");
+        cartRequest.setItemId(2L);
+        cartRequest.setQuantity(1);
+
+        String token = getBearerToken("Julian204");
+
+        Set<Integer> orderIds = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/cart/addToCart").header("Authorization", token).content(objectMapper.writeValueAsString(cartRequest))
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk()).andReturn();
+
+            //The order is acknowledged with its id before it is written
+            MvcResult result = mockMvc.perform(
+                    MockMvcRequestBuilders.post("/api/order/submit/Julian204").header("Authorization", token)
+                            .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isAccepted()).andExpect(MockMvcResultMatchers.jsonPath("$.total").value("1.99")).andReturn();
+            orderIds.add(JsonPath.read(result.getResponse().getContentAsString(), "$.id"));
+        }
+        assertEquals(3, orderIds.size());
+
+        //The writer flushes them afterwards under the acknowledged ids
+        assertTrue(writer.awaitFlushed(5000));
+        MvcResult history = mockMvc.perform(
+                MockMvcRequestBuilders.get("/api/order/history/Julian204").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn();
+        List<Integer> storedIds = JsonPath.read(history.getResponse().getContentAsString(), "$[*].id");
+        assertEquals(orderIds, new HashSet<>(storedIds));
+
+        //The cart was emptied when the order was accepted
+        mockMvc.perform(
+                MockMvcRequestBuilders.post("/api/order/submit/Julian204").header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound()).andReturn();
+    }
+
+    @Test
+    public void testTransientWriteFailureIsRetried() throws Exception{
+        getBearerToken("Julian205");
+        UserOrder order = pendingOrder(900001L, persistentUserRepository.findIdByUsername("Julian205"));
+
+        //An uncommitted row with the same id makes the writer's insert time out on the row lock
+        EntityManager blocker = holdOrderRow(order);
+        try {
+            writer.reserve();
+            writer.enqueue(order);
+
+            //The order keeps its slot while the lock is held instead of being dropped
+            assertFalse(writer.awaitFlushed(500));
+        } finally {
+            blocker.getTransaction().rollback();
+            blocker.close();
+        }
+
+        assertTrue(writer.awaitFlushed(5000));
+        assertTrue(orderRepository.existsById(order.getId()));
+        assertFalse(failedOrderRepository.existsById(order.getId()));
+    }
+
+    @Test
+    public void testPermanentWriteFailureIsDeadLettered() throws Exception{
+        //No such user, so the insert violates the foreign key however often it is retried
+        UserOrder order = pendingOrder(900002L, 999999L);
+
+        writer.reserve();
+        writer.enqueue(order);
+
+        assertTrue(writer.awaitFlushed(5000));
+        assertFalse(orderRepository.existsById(order.getId()));
+        FailedOrder failed = failedOrderRepository.findById(order.getId()).get();
+        assertEquals(Long.valueOf(999999L), failed.getUserId());
+        assertEquals(0, new BigDecimal("1.99").compareTo(failed.getTotal()));
+        assertNotNull(failed.getReason());
+    }
+
+    @Test
+    public void testShutdownDeadLettersWhatItCannotWrite() throws Exception{
+        getBearerToken("Julian206");
+        UserOrder order = pendingOrder(900003L, persistentUserRepository.findIdByUsername("Julian206"));
+
+        //A writer of its own, so shutting it down leaves the context's writer alone
+        WriteBehindOrderWriter stopping = new WriteBehindOrderWriter(transactionManager, 10, 500, 20, 200, 50);
+        applicationContext.getAutowireCapableBeanFactory().autowireBean(stopping);
+
+        EntityManager blocker = holdOrderRow(order);
+        try {
+            stopping.reserve();
+            stopping.enqueue(order);
+
+            //Still retrying when the timeout runs out, so shutdown stores the order before returning
+            stopping.shutdown();
+
+            assertEquals(0, stopping.getQueueSize());
+            assertTrue(failedOrderRepository.existsById(order.getId()));
+        } finally {
+            blocker.getTransaction().rollback();
+            blocker.close();
+        }
+    }
+
+    private UserOrder pendingOrder(Long id, Long userId) {
+        User user = new User();
+        user.setId(userId);
+        Item item = new Item();
+        item.setId(1L);
+
+        UserOrder order = new UserOrder();
+        order.setId(id);
+        order.setUser(user);
+        order.setItems(Collections.singletonList(item));
+        order.setTotal(new BigDecimal("1.99"));
+        return order;
+    }
+
+    private EntityManager holdOrderRow(UserOrder order) {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        entityManager.getTransaction().begin();
+        entityManager.createNativeQuery("insert into user_order (id, total, user_id) values (?1, ?2, ?3)")
+                .setParameter(1, order.getId()).setParameter(2, order.getTotal()).setParameter(3, order.getUser().getId())
+                .executeUpdate();
+        return entityManager;
+    }
+
+    private String getBearerToken(String username) throws Exception {
+        return TestUsers.getBearerToken(mockMvc, objectMapper, username);
+    }
+}
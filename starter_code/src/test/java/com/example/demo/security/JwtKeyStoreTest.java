@@ -0,0 +1,199 @@
+package com.example.demo.security;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class JwtKeyStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSignsAndVerifiesWithEachAlgorithm() throws Exception {
+        String jwks = jwks(rsaJwk("rsa", true), ecJwk("ec", true),
+                "{\"kty\":\"oct\",\"alg\":\"HS512\",\"kid\":\"hs\",\"k\":\"" + encode(new byte[64]) + "\"}");
+        for (String keyId : new String[] {"rsa", "ec", "hs", JwtKeyStore.DEFAULT_KEY_ID}) {
+            JwtKeyStore store = store(jwks, "", keyId);
+            String token = sign(store, "Julian22" + keyId);
+            assertEquals(keyId, JWT.decode(token).getKeyId());
+            assertEquals("Julian22" + keyId, store.verify(token).getSubject());
+        }
+        assertEquals("RS256", JWT.decode(sign(store(jwks, "", "rsa"), "Julian22")).getAlgorithm());
+        assertEquals("ES256", JWT.decode(sign(store(jwks, "", "ec"), "Julian22")).getAlgorithm());
+    }
+
+    @Test
+    public void testAcceptsOverlappingKeysDuringRotation() throws Exception {
+        String oldKey = rsaJwk("2024-01", true);
+        String newKey = ecJwk("2024-02", true);
+        String oldToken = sign(store(jwks(oldKey), "", "2024-01"), "Julian22");
+
+        //Both keys are published while the active id moves to the new one
+        JwtKeyStore rotated = store(jwks(oldKey, newKey), "", "2024-02");
+        assertEquals("Julian22", rotated.verify(oldToken).getSubject());
+        assertEquals("2024-02", JWT.decode(sign(rotated, "Julian22")).getKeyId());
+
+        //Once the old key is retired its tokens are refused
+        JwtKeyStore retired = store(jwks(newKey), "", "2024-02");
+        try {
+            retired.verify(oldToken);
+            fail("Expected a token signed by a retired key to be rejected");
+        } catch (JWTVerificationException expected) {
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownKeysAndForgedAlgorithms() throws Exception {
+        JwtKeyStore store = store(jwks(rsaJwk("rsa", true)), "", "rsa");
+        String foreignToken = JWT.create().withKeyId("elsewhere").withSubject("Julian22")
+                .sign(Algorithm.HMAC512("secret".getBytes(StandardCharsets.UTF_8)));
+        String forgedToken = JWT.create().withKeyId("rsa").withSubject("Julian22")
+                .sign(Algorithm.HMAC512("secret".getBytes(StandardCharsets.UTF_8)));
+        for (String token : new String[] {foreignToken, forgedToken}) {
+            try {
+                store.verify(token);
+                fail("Expected " + token + " to be rejected");
+            } catch (JWTVerificationException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void testVerifiesTokensIssuedBeforeKeyIds() throws Exception {
+        JwtKeyStore store = store(jwks(rsaJwk("rsa", true)), "", "rsa");
+        String legacyToken = JWT.create().withSubject("Julian22")
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME))
+                .sign(Algorithm.HMAC512(SecurityConstants.SECRET.getBytes()));
+        assertEquals("Julian22", store.verify(legacyToken).getSubject());
+    }
+
+    @Test
+    public void testRefusesAnActiveKeyWithoutPrivatePart() throws Exception {
+        try {
+            store(jwks(rsaJwk("public-only", false)), "", "public-only");
+            fail("Expected a public-only active key to be refused");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void testReloadsChangedKeyFile() throws Exception {
+        String oldKey = ecJwk("old", true);
+        String newKey = rsaJwk("new", true);
+        Path file = folder.newFile("jwks.json").toPath();
+        write(file, jwks(oldKey), 1_000_000);
+
+        VerifiedTokenCache tokenCache = new VerifiedTokenCache(100);
+        JwtKeyStore store = new JwtKeyStore(new ObjectMapper(), tokenCache, SecurityConstants.SECRET, "",
+                file.toString(), 60_000, "old");
+        String oldToken = sign(store, "Julian22");
+        String newToken = sign(store(jwks(oldKey, newKey), "", "new"), "Julian22");
+        tokenCache.put(oldToken, "Julian22", null, new Date(System.currentTimeMillis() + 60_000));
+
+        //A token naming an unknown key triggers a reload, at most once a second
+        write(file, jwks(oldKey, newKey), 2_000_000);
+        Thread.sleep(1100);
+        assertEquals("Julian22", store.verify(newToken).getSubject());
+        assertTrue(store.hasKey("new"));
+        assertEquals(0, tokenCache.size());
+
+        //A broken file keeps the keys already loaded
+        write(file, "{\"keys\":", 3_000_000);
+        Thread.sleep(1100);
+        try {
+            store.verify(JWT.create().withKeyId("missing").withSubject("Julian22").sign(Algorithm.none()));
+            fail("Expected an unknown key to be rejected");
+        } catch (JWTVerificationException expected) {
+        }
+        assertTrue(store.hasKey("new"));
+        assertFalse(store.hasKey("missing"));
+        assertEquals("Julian22", store.verify(oldToken).getSubject());
+
+        //The finished file is still picked up when it keeps the broken file's modification time
+        String laterKey = ecJwk("later", true);
+        write(file, jwks(oldKey, newKey, laterKey), 3_000_000);
+        Thread.sleep(1100);
+        assertEquals("Julian22", store.verify(sign(store(jwks(laterKey), "", "later"), "Julian22")).getSubject());
+    }
+
+    private static JwtKeyStore store(String jwks, String file, String activeKeyId) {
+        return new JwtKeyStore(new ObjectMapper(), new VerifiedTokenCache(0), SecurityConstants.SECRET, jwks, file,
+                60_000, activeKeyId);
+    }
+
+    private static String sign(JwtKeyStore store, String subject) {
+        return store.sign(JWT.create().withSubject(subject)
+                .withExpiresAt(new Date(System.currentTimeMillis() + SecurityConstants.EXPIRATION_TIME)));
+    }
+
+    private static void write(Path file, String content, long modified) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    private static String jwks(String... keys) {
+        return "{\"keys\":[" + String.join(",", keys) + "]}";
+    }
+
+    private static String rsaJwk(String keyId, boolean withPrivate) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair pair = generator.generateKeyPair();
+        RSAPublicKey publicKey = (RSAPublicKey) pair.getPublic();
+        String jwk = "{\"kty\":\"RSA\",\"alg\":\"RS256\",\"kid\":\"" + keyId + "\",\"n\":\""
+                + encode(publicKey.getModulus()) + "\",\"e\":\"" + encode(publicKey.getPublicExponent()) + "\"";
+        if (withPrivate) {
+            jwk += ",\"d\":\"" + encode(((RSAPrivateKey) pair.getPrivate()).getPrivateExponent()) + "\"";
+        }
+        return jwk + "}";
+    }
+
+    private static String ecJwk(String keyId, boolean withPrivate) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair pair = generator.generateKeyPair();
+        ECPublicKey publicKey = (ECPublicKey) pair.getPublic();
+        String jwk = "{\"kty\":\"EC\",\"alg\":\"ES256\",\"crv\":\"P-256\",\"kid\":\"" + keyId + "\",\"x\":\""
+                + encode(publicKey.getW().getAffineX()) + "\",\"y\":\"" + encode(publicKey.getW().getAffineY()) + "\"";
+        if (withPrivate) {
+            jwk += ",\"d\":\"" + encode(((ECPrivateKey) pair.getPrivate()).getS()) + "\"";
+        }
+        return jwk + "}";
+    }
+
+    private static String encode(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        return encode(bytes[0] == 0 && bytes.length > 1 ? Arrays.copyOfRange(bytes, 1, bytes.length) : bytes);
+    }
+
+    private static String encode(byte[] bytes) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.demo.security;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PasswordHashingExecutorTest {
+
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(1, 1, 100);
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testRejectsWorkWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+
+        //Occupy the only worker and the only queue slot
+        CompletableFuture<String> running = executor.submit(() -> await(release));
+        CompletableFuture<String> queued = executor.submit(() -> await(release));
+
+        try {
+            executor.submit(() -> "rejected");
+            fail("Expected the saturated pool to reject work");
+        } catch (PasswordHashingSaturatedException expected) {
+            //Callers map this to 503
+        }
+
+        release.countDown();
+        assertEquals("done", running.get());
+        assertEquals("done", queued.get());
+        assertEquals("accepted", executor.execute(() -> "accepted"));
+    }
+
+    @Test(expected = PasswordHashingSaturatedException.class)
+    public void testExecuteGivesUpAfterTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            executor.execute(() -> await(release));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
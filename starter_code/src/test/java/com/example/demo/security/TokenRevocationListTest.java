@@ -0,0 +1,56 @@
+package com.example.demo.security;
+
+import java.util.UUID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TokenRevocationListTest {
+
+    @Test
+    public void testRevokesEachIdOnce() {
+        TokenRevocationList revocationList = new TokenRevocationList(1000, 60_000);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        assertFalse(revocationList.isRevoked("jti-1"));
+        assertFalse(revocationList.isRevoked(null));
+        assertTrue(revocationList.revoke("jti-1", expiresAt));
+        assertFalse(revocationList.revoke("jti-1", expiresAt));
+        assertTrue(revocationList.isRevoked("jti-1"));
+        assertFalse(revocationList.isRevoked("jti-2"));
+    }
+
+    @Test
+    public void testKeepsExactAnswersBeyondExpectedSize() {
+        //Ten times more entries than the filter is sized for still gives no false answers
+        TokenRevocationList revocationList = new TokenRevocationList(100, 60_000);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        String[] revoked = new String[1000];
+        for (int i = 0; i < revoked.length; i++) {
+            revoked[i] = UUID.randomUUID().toString();
+            revocationList.revoke(revoked[i], expiresAt);
+        }
+        for (String tokenId : revoked) {
+            assertTrue(revocationList.isRevoked(tokenId));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(revocationList.isRevoked(UUID.randomUUID().toString()));
+        }
+    }
+
+    @Test
+    public void testPurgesExpiredIds() {
+        TokenRevocationList revocationList = new TokenRevocationList(1000, 60_000);
+        revocationList.revoke("expired", System.currentTimeMillis() - 1);
+        revocationList.revoke("live", System.currentTimeMillis() + 60_000);
+
+        revocationList.purgeExpired();
+
+        assertEquals(1, revocationList.size());
+        assertFalse(revocationList.isRevoked("expired"));
+        assertTrue(revocationList.isRevoked("live"));
+    }
+}